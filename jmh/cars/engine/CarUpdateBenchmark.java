@@ -0,0 +1,42 @@
+package cars.engine;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Integration of all cars of a store, the second phase of a tick, with each {@link Integrator}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class CarUpdateBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int cars;
+
+    @Param({"SCALAR", "VECTOR"})
+    public String integrator;
+
+    private CarStore store;
+    private Integrator backend;
+
+    @Setup
+    public void setup() {
+        store = new CarStore(cars);
+        final var steering = Vector2.vec2(250, -120);
+        for (final var car : FlockingCar.flock(cars)) {
+            car.attach(store);
+        }
+        for (var i = 0; i < cars; i++) store.setSteering(i, steering);
+        backend = Integrator.valueOf(integrator);
+    }
+
+    @Benchmark
+    public CarStore integrate() {
+        backend.integrate(store, Simulation.DEFAULT_DT, Window.INITIAL_WIDTH, Window.INITIAL_HEIGHT);
+        return store;
+    }
+}
@@ -0,0 +1,35 @@
+package cars.engine;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The collision phase of a tick over a flock: broadphase, narrowphase and contact solving.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int cars;
+
+    private Simulation simulation;
+    private final Collisions collisions = new Collisions();
+
+    @Setup
+    public void setup() {
+        simulation = new Simulation(FlockingCar.flock(cars));
+        simulation.setCollisionsEnabled(true);
+        // Let the flock form, and bump into itself, before measuring
+        simulation.run(120);
+    }
+
+    @Benchmark
+    public int resolve() {
+        return collisions.resolve(simulation.getStore(), simulation.getWidth(), simulation.getHeight());
+    }
+}
@@ -0,0 +1,100 @@
+package cars.engine;
+
+import java.util.Random;
+
+/**
+ * Checks the error bounds documented by {@link FastMath} against {@link Math}, over dense sweeps,
+ * and that its special values match {@link Math}, bit for bit. It is a check of its own, apart
+ * from {@link FastMathBenchmark}:
+ * <pre>
+ * java -cp target/benchmarks.jar cars.engine.FastMathAccuracy
+ * </pre>
+ */
+public final class FastMathAccuracy {
+    // Samples of each sweep
+    private static final int SAMPLES = 2_000_000;
+    // atan2 is swept around circles of these radii, from tiny to huge vectors
+    private static final double[] RADII = {1e-300, 1e-6, 1e-3, 1, 1e3, 1e6, 1e300};
+    private static final double[] SPECIAL = {
+        0.0, -0.0, 1, -1, Double.MIN_VALUE, -Double.MAX_VALUE,
+        Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NaN
+    };
+
+    private FastMathAccuracy() {}
+
+    public static void main(String[] args) {
+        check();
+        System.out.println("FastMath is within its documented bounds");
+    }
+
+    /**
+     * @throws AssertionError If an error bound or a special value does not hold.
+     */
+    public static void check() {
+        // Every table interval, many times over, around the origin
+        var sinCos = 0.0;
+        for (var i = 0; i <= SAMPLES; i++) {
+            final var radians = -4 * Math.PI + 8 * Math.PI * i / SAMPLES;
+            sinCos = Math.max(sinCos, sinCosError(radians));
+        }
+        // Up to the largest argument looked up, where the fewest bits are left for the fraction
+        final var random = new Random(0);
+        for (var i = 0; i < SAMPLES; i++) {
+            sinCos = Math.max(sinCos, sinCosError(random.nextDouble(-FastMath.MAX_ARGUMENT, FastMath.MAX_ARGUMENT)));
+        }
+        sinCos = Math.max(sinCos, sinCosError(FastMath.MAX_ARGUMENT));
+        sinCos = Math.max(sinCos, sinCosError(-FastMath.MAX_ARGUMENT));
+        bound("sin and cos", sinCos, FastMath.SIN_COS_MAX_ERROR);
+
+        var atan2 = 0.0;
+        for (final var radius : RADII) {
+            for (var i = 0; i <= SAMPLES / RADII.length; i++) {
+                final var angle = -Math.PI + 2 * Math.PI * i / (SAMPLES / RADII.length);
+                final var y = radius * Math.sin(angle);
+                final var x = radius * Math.cos(angle);
+                atan2 = Math.max(atan2, Math.abs(FastMath.atan2(y, x) - Math.atan2(y, x)));
+            }
+        }
+        bound("atan2", atan2, FastMath.ATAN2_MAX_ERROR);
+
+        // Beyond the table, and not numbers, sin and cos are the ones of Math
+        for (final var radians : new double[] {
+            Math.nextUp(FastMath.MAX_ARGUMENT), -1e300, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NaN
+        }) {
+            same("sin(" + radians + ")", FastMath.sin(radians), Math.sin(radians));
+            same("cos(" + radians + ")", FastMath.cos(radians), Math.cos(radians));
+        }
+        // Zeros keep their sign
+        for (final var zero : new double[] {0.0, -0.0}) {
+            same("sin(" + zero + ")", FastMath.sin(zero), Math.sin(zero));
+            same("cos(" + zero + ")", FastMath.cos(zero), Math.cos(zero));
+        }
+
+        // Zeros, infinities and NaN, in either argument, give the results of Math
+        for (final var y : SPECIAL) {
+            for (final var x : SPECIAL) {
+                if (regular(y) && regular(x)) continue;
+                same("atan2(" + y + ", " + x + ")", FastMath.atan2(y, x), Math.atan2(y, x));
+            }
+        }
+    }
+
+    private static double sinCosError(double radians) {
+        return Math.max(
+            Math.abs(FastMath.sin(radians) - Math.sin(radians)),
+            Math.abs(FastMath.cos(radians) - Math.cos(radians))
+        );
+    }
+
+    private static boolean regular(double value) {
+        return value != 0 && Double.isFinite(value);
+    }
+
+    private static void bound(String name, double error, double max) {
+        if (!(error <= max)) throw new AssertionError(name + " error " + error + " is over " + max);
+    }
+
+    private static void same(String name, double fast, double exact) {
+        if (Double.compare(fast, exact) != 0) throw new AssertionError(name + " is " + fast + ", not " + exact);
+    }
+}
@@ -0,0 +1,66 @@
+package cars.engine;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link FastMath} against {@link Math}, over a batch of random headings. The error bounds of
+ * {@link FastMath} are checked apart, by {@link FastMathAccuracy}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FastMathBenchmark {
+    private static final int COUNT = 1024;
+
+    private final double[] x = new double[COUNT];
+    private final double[] y = new double[COUNT];
+    private final double[] angles = new double[COUNT];
+
+    @Setup
+    public void setup() {
+        final var random = new Random(0);
+        for (var i = 0; i < COUNT; i++) {
+            x[i] = random.nextGaussian() * 100;
+            y[i] = random.nextGaussian() * 100;
+            angles[i] = random.nextDouble(-Math.PI, Math.PI);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public double atan2() {
+        var sum = 0.0;
+        for (var i = 0; i < COUNT; i++) sum += Math.atan2(y[i], x[i]);
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public double fastAtan2() {
+        var sum = 0.0;
+        for (var i = 0; i < COUNT; i++) sum += FastMath.atan2(y[i], x[i]);
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public double sinCos() {
+        var sum = 0.0;
+        for (var i = 0; i < COUNT; i++) sum += Math.sin(angles[i]) + Math.cos(angles[i]);
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public double fastSinCos() {
+        var sum = 0.0;
+        for (var i = 0; i < COUNT; i++) sum += FastMath.sin(angles[i]) + FastMath.cos(angles[i]);
+        return sum;
+    }
+}
@@ -0,0 +1,87 @@
+package cars.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static cars.engine.Vector2.vec2;
+
+/**
+ * Classic separation, alignment and cohesion flock, used as a realistic steering workload.
+ * It either walks the neighbor list or uses the fused {@link Neighborhood} summary.
+ */
+final class FlockingCar extends Car {
+    private static final double RADIUS = 60;
+
+    private final boolean fused;
+    private final Vector2 separation = vec2();
+    private final Vector2 alignment = vec2();
+    private final Vector2 cohesion = vec2();
+
+    FlockingCar(boolean fused) {
+        super(settings -> settings.randomPosition().randomOrientation());
+        this.fused = fused;
+    }
+
+    static List<Car> flock(int count) {
+        return flock(count, false);
+    }
+
+    static List<Car> flock(int count, boolean fused) {
+        final var cars = new ArrayList<Car>(count);
+        for (var i = 0; i < count; i++) cars.add(new FlockingCar(fused));
+        return cars;
+    }
+
+    @Override
+    public Vector2 calculateSteering(World world) {
+        if (fused) return calculateFused(world.getNeighborhood(RADIUS));
+
+        final var neighbors = world.getNeighbors(RADIUS);
+        if (neighbors.isEmpty()) {
+            return getDirection().multiply(getMaxForce());
+        }
+
+        final var x = getPositionX();
+        final var y = getPositionY();
+        separation.set(0, 0);
+        alignment.set(0, 0);
+        cohesion.set(0, 0);
+        for (final var other : neighbors) {
+            final var dx = x - other.getPositionX();
+            final var dy = y - other.getPositionY();
+            final var distSqr = Math.max(dx * dx + dy * dy, 1e-6);
+            separation.x += dx / distSqr;
+            separation.y += dy / distSqr;
+            alignment.x += other.getVelocityX();
+            alignment.y += other.getVelocityY();
+            cohesion.x += other.getPositionX();
+            cohesion.y += other.getPositionY();
+        }
+
+        final var n = neighbors.size();
+        cohesion.divide(n);
+        cohesion.x -= x;
+        cohesion.y -= y;
+        alignment.divide(n).subtract(getVelocity());
+
+        return separation.resize(getMaxForce())
+            .add(alignment.truncate(getMaxForce()))
+            .add(cohesion.truncate(getMaxForce()));
+    }
+
+    private Vector2 calculateFused(Neighborhood neighborhood) {
+        if (neighborhood.isEmpty()) {
+            return getDirection().multiply(getMaxForce());
+        }
+
+        neighborhood.getSeparation(separation);
+        neighborhood.getAverageVelocity(alignment).subtract(getVelocity());
+        neighborhood.getCentroid(cohesion);
+        cohesion.x -= getPositionX();
+        cohesion.y -= getPositionY();
+
+        return separation.resize(getMaxForce())
+            .add(alignment.truncate(getMaxForce()))
+            .add(cohesion.truncate(getMaxForce()));
+    }
+}
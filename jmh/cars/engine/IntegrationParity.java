@@ -0,0 +1,98 @@
+package cars.engine;
+
+import java.util.Random;
+
+/**
+ * Checks that every {@link Integrator} moves cars exactly as the original {@code Car.update}
+ * did, with {@link Vector2} operations, bit for bit, over a few ticks of cars at all sorts of
+ * speeds and forces, most of them over their limits, and many about to wrap around.
+ * <p>
+ * {@link Vector2#divide(double)} multiplies by {@code 1.0f / scalar}, but the float literal is
+ * widened to double before dividing, so its reciprocals are the same doubles as the
+ * {@code 1.0 / x} of {@link CarStore}. Run it with:
+ * <pre>
+ * java --add-modules jdk.incubator.vector -cp target/benchmarks.jar cars.engine.IntegrationParity
+ * </pre>
+ * Without the module only {@link Integrator#SCALAR} is checked.
+ */
+public final class IntegrationParity {
+    private static final int CARS = 100_003;
+    private static final int TICKS = 4;
+    private static final double SECS = Simulation.DEFAULT_DT;
+    private static final double WIDTH = Window.INITIAL_WIDTH;
+    private static final double HEIGHT = Window.INITIAL_HEIGHT;
+
+    private IntegrationParity() {}
+
+    public static void main(String[] args) {
+        final var vector = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+        check(Integrator.SCALAR);
+        if (vector) check(Integrator.VECTOR);
+        System.out.println("Integration matches Car.update" + (vector ? "" : ", vector integrator not checked"));
+    }
+
+    /**
+     * @throws AssertionError If a car ends up anywhere else, or with any other velocity.
+     */
+    public static void check(Integrator integrator) {
+        final var random = new Random(0);
+        final var store = new CarStore(CARS);
+        final var position = new Vector2[CARS];
+        final var velocity = new Vector2[CARS];
+        final var mass = new double[CARS];
+        final var maxForce = new double[CARS];
+        final var maxSpeed = new double[CARS];
+        final var w = WIDTH / 2 + Car.WRAP_MARGIN;
+        final var h = HEIGHT / 2 + Car.WRAP_MARGIN;
+        for (var i = 0; i < CARS; i++) {
+            position[i] = Vector2.vec2(random.nextDouble(-w - 2, w + 2), random.nextDouble(-h - 2, h + 2));
+            velocity[i] = Vector2.vec2(random.nextGaussian() * 400, random.nextGaussian() * 400);
+            mass[i] = random.nextDouble(0.1, 100);
+            maxForce[i] = random.nextDouble(0, 1000);
+            maxSpeed[i] = random.nextDouble(1, 500);
+            store.add(position[i].x, position[i].y, velocity[i].x, velocity[i].y, mass[i], maxForce[i], maxSpeed[i]);
+        }
+
+        for (var tick = 0; tick < TICKS; tick++) {
+            for (var i = 0; i < CARS; i++) {
+                final var force = i % 11 == 0 ? null : Vector2.vec2(random.nextGaussian() * 2000, random.nextGaussian() * 2000);
+                store.setSteering(i, force);
+                if (force != null) update(force, position[i], velocity[i], mass[i], maxForce[i], maxSpeed[i]);
+            }
+            integrator.integrate(store, SECS, WIDTH, HEIGHT);
+
+            for (var i = 0; i < CARS; i++) {
+                if (!same(store.px[i], position[i].x) || !same(store.py[i], position[i].y)
+                    || !same(store.vx[i], velocity[i].x) || !same(store.vy[i], velocity[i].y)) {
+                    throw new AssertionError(integrator + " moved car " + i + " at tick " + tick + " to "
+                        + store.px[i] + ", " + store.py[i] + " instead of " + position[i]);
+                }
+            }
+        }
+    }
+
+    // The original Car.update, with the original Vector2 truncate: normalize, then multiply
+    private static void update(Vector2 force, Vector2 position, Vector2 velocity,
+                               double mass, double maxForce, double maxSpeed) {
+        final var steering = truncate(force.clone(), maxForce);
+        final var acceleration = steering.multiply(SECS).divide(mass);      // (F*dt)/m
+        velocity.set(truncate(velocity.add(acceleration), maxSpeed));
+        position.add(velocity.clone().multiply(SECS));
+
+        final var w = WIDTH / 2.0;
+        final var h = HEIGHT / 2.0;
+        if (position.x < -(w + 20)) position.x =  w;
+        if (position.x >  (w + 20)) position.x = -w;
+        if (position.y < -(h + 20)) position.y =  h;
+        if (position.y >  (h + 20)) position.y = -h;
+    }
+
+    private static Vector2 truncate(Vector2 vector, double size) {
+        if (vector.sizeSqr() <= size * size) return vector;
+        return vector.divide(vector.size()).multiply(size);
+    }
+
+    private static boolean same(double a, double b) {
+        return Double.doubleToRawLongBits(a) == Double.doubleToRawLongBits(b);
+    }
+}
@@ -0,0 +1,77 @@
+package cars.engine;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Radius and nearest neighbor queries through the spatial grid, against the brute-force scan.
+ * Each operation is one query, from a different car each time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NeighborsBenchmark {
+    private static final double RADIUS = 60;
+    private static final int NEAREST = 7;
+
+    @Param({"100", "1000", "10000"})
+    public int cars;
+
+    private World[] indexed;
+    private World[] bruteForce;
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        final var simulation = new Simulation(FlockingCar.flock(cars));
+        final var all = simulation.getCars();
+        final var grid = new SpatialGrid();
+        grid.rebuild(all, simulation.getWidth(), simulation.getHeight());
+
+        indexed = new World[cars];
+        bruteForce = new World[cars];
+        for (var i = 0; i < cars; i++) {
+            final var car = all.get(i);
+            indexed[i] = new World(simulation.getDt(), car, all, grid, null, null,
+                simulation.getWidth(), simulation.getHeight());
+            bruteForce[i] = new World(simulation.getDt(), car, all, null, null,
+                simulation.getWidth(), simulation.getHeight());
+        }
+    }
+
+    @Benchmark
+    public List<Car> grid() {
+        next = (next + 1) % cars;
+        return indexed[next].getNeighbors(RADIUS);
+    }
+
+    @Benchmark
+    public void gridForEach(Blackhole blackhole) {
+        next = (next + 1) % cars;
+        indexed[next].forEachNeighbor(RADIUS, (car, distanceSqr) -> blackhole.consume(distanceSqr));
+    }
+
+    @Benchmark
+    public int gridCount() {
+        next = (next + 1) % cars;
+        return indexed[next].countNeighbors(RADIUS);
+    }
+
+    @Benchmark
+    public List<Car> gridNearest() {
+        next = (next + 1) % cars;
+        return indexed[next].nearest(NEAREST, RADIUS);
+    }
+
+    @Benchmark
+    public List<Car> bruteForce() {
+        next = (next + 1) % cars;
+        return bruteForce[next].getNeighbors(RADIUS);
+    }
+}
@@ -0,0 +1,43 @@
+package cars.engine;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A full headless tick of a flock: grid rebuild, steering and integration.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TickBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int cars;
+
+    @Param({"true", "false"})
+    public boolean parallel;
+
+    // Flocking through World.getNeighborhood() instead of the neighbor list
+    @Param({"false", "true"})
+    public boolean fused;
+
+    private Simulation simulation;
+
+    @Setup
+    public void setup() {
+        simulation = new Simulation(FlockingCar.flock(cars, fused));
+        simulation.setPool(parallel ? ForkJoinPool.commonPool() : null);
+        // Let the flock form before measuring
+        simulation.run(120);
+    }
+
+    @Benchmark
+    public Simulation tick() {
+        simulation.step();
+        return simulation;
+    }
+}
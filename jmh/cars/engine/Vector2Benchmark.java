@@ -0,0 +1,58 @@
+package cars.engine;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static cars.engine.Vector2.vec2;
+
+/**
+ * Cost of the most used Vector2 operations, in their allocating and in-place forms.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Vector2Benchmark {
+    private final Vector2 a = vec2(3.5, -2.25);
+    private final Vector2 b = vec2(-120.0, 80.0);
+    private final Vector2 c = vec2(0.75, 42.0);
+    private final Vector2 out = vec2();
+
+    @Benchmark
+    public Vector2 normalize() {
+        return Vector2.normalize(b);
+    }
+
+    @Benchmark
+    public Vector2 normalizeInPlace() {
+        return Vector2.normalize(b, out);
+    }
+
+    @Benchmark
+    public Vector2 truncate() {
+        return Vector2.truncate(b, 100);
+    }
+
+    @Benchmark
+    public Vector2 truncateInPlace() {
+        return Vector2.truncate(b, 100, out);
+    }
+
+    @Benchmark
+    public Vector2 addVarargs() {
+        return Vector2.add(a, b, c);
+    }
+
+    @Benchmark
+    public Vector2 addFixedArity() {
+        return Vector2.add(a, b).add(c);
+    }
+
+    @Benchmark
+    public Vector2 addInPlace() {
+        return out.set(a).add(b).add(c);
+    }
+}
@@ -0,0 +1,410 @@
+package cars.engine;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.jar.JarFile;
+
+/**
+ * Runs many setups headlessly, in parallel, and writes a CSV line of metrics for each run.
+ * <p>
+ * A setup is any class with a public no-argument constructor and a public {@code createCars()}
+ * method returning a list of cars, like {@code cars.student.Setup}, and optionally a
+ * {@code createObstacles()} and {@code createPaths()} methods. Setups are given by class
+ * name, or as directories or jar files of compiled classes, in which every class whose name ends
+ * with {@code Setup} is run. Each directory or jar gets a class loader of its own, which looks
+ * into it before the application class path, so several of them can hold classes with the same
+ * name, e.g. a {@code cars.student} package per student.
+ * <p>
+ * Runs are spread over a work-stealing pool, one task per run, and each simulation steers its
+ * cars in the thread of its task. A setup that fails to load, to create its cars or to steer them
+ * only fails its own line. All runs create their cars with the same seed, so they can be compared
+ * and repeated.
+ * <p>
+ * Usage:
+ * <pre>
+ * java -cp jcars.jar cars.engine.Batch [options] (class name | directory | jar)...
+ *   --ticks n       ticks to run each setup, 3600 by default (one minute)
+ *   --seed n        seed of random positions, orientations and colors, 0 by default
+ *   --target x,y    mouse and click position given to the cars, and to measure distances from, 0,0 by default
+ *   --budget ms     steering time budget per car and tick, none by default
+ *   --collisions b  true to push touching cars apart, false by default
+ *   --sleep b       true to skip idle cars until something wakes them, false by default
+ *   --threads n     runs at once, the number of cores by default
+ *   --out file      CSV file to write, the standard output by default
+ * </pre>
+ * The {@code collisions} column counts the times two cars started to touch, with the footprints
+ * of {@link Collisions}, whether or not {@code --collisions} pushes them apart, so runs with and
+ * without it can be compared. A contact that lasts many ticks is one collision.
+ * <p>
+ * Exits with 1 if any run failed, and 2 on bad arguments.
+ */
+public final class Batch {
+    public static final String HEADER = "setup,source,status,error,cars,ticks,seconds,ticksPerSecond,"
+        + "meanDistanceToTarget,maxDistanceToTarget,collisions,overruns,positions";
+
+    private record Options(long ticks, long seed, Vector2 target, long budgetNanos, boolean collisions, boolean sleep, int threads, Path out) {}
+
+    private record Job(String setup, String source, ClassLoader loader) {}
+
+    private record Result(boolean ok, String line) {}
+
+    private Batch() {}
+
+    public static void main(String[] args) {
+        final List<Job> jobs;
+        final Options options;
+        final var loaders = new ArrayList<URLClassLoader>();
+        try {
+            options = parse(args);
+            jobs = jobs(args, loaders);
+            if (jobs.isEmpty()) throw new IllegalArgumentException("no setups to run");
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println(e.getMessage());
+            System.err.println("usage: java -cp jcars.jar cars.engine.Batch [--ticks n] [--seed n] [--target x,y]"
+                + " [--budget ms] [--collisions true|false] [--sleep true|false] [--threads n] [--out file] (class name | directory | jar)...");
+            System.err.println("collisions column: times two cars started to touch, with or without --collisions");
+            System.exit(2);
+            return;
+        }
+
+        final var pool = new ForkJoinPool(options.threads());
+        final var runs = new ArrayList<ForkJoinTask<Result>>(jobs.size());
+        for (final var job : jobs) runs.add(pool.submit(() -> run(job, options)));
+
+        var failures = 0;
+        try (var out = options.out() == null ? null : new PrintStream(Files.newOutputStream(options.out()), false)) {
+            final var csv = out == null ? System.out : out;
+            csv.println(HEADER);
+            // In the order given, whichever run ends first
+            for (final var run : runs) {
+                final var result = run.join();
+                if (!result.ok()) failures++;
+                csv.println(result.line());
+            }
+            csv.flush();
+        } catch (IOException e) {
+            System.err.println("Could not write " + options.out() + ": " + e.getMessage());
+            System.exit(2);
+        } finally {
+            pool.shutdown();
+            for (final var loader : loaders) {
+                try {
+                    loader.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        System.err.printf("%d runs, %d failed%n", jobs.size(), failures);
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    private static Options parse(String[] args) {
+        var ticks = 3600L;
+        var seed = 0L;
+        var target = Vector2.vec2();
+        var budgetNanos = 0L;
+        var collisions = false;
+        var sleep = false;
+        var threads = Runtime.getRuntime().availableProcessors();
+        Path out = null;
+        for (var i = 0; i < args.length && args[i].startsWith("--"); i += 2) {
+            if (i + 1 == args.length) throw new IllegalArgumentException("missing value of " + args[i]);
+            final var value = args[i + 1];
+            try {
+                switch (args[i]) {
+                    case "--ticks" -> ticks = Long.parseLong(value);
+                    case "--seed" -> seed = Long.parseLong(value);
+                    case "--target" -> {
+                        final var xy = value.split(",");
+                        if (xy.length != 2) throw new IllegalArgumentException("--target must be x,y");
+                        target = Vector2.vec2(Double.parseDouble(xy[0]), Double.parseDouble(xy[1]));
+                    }
+                    case "--budget" -> budgetNanos = Math.round(Double.parseDouble(value) * 1_000_000);
+                    case "--collisions" -> collisions = flag(args[i], value);
+                    case "--sleep" -> sleep = flag(args[i], value);
+                    case "--threads" -> threads = Integer.parseInt(value);
+                    case "--out" -> out = Path.of(value);
+                    default -> throw new IllegalArgumentException("unknown option " + args[i]);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("bad value of " + args[i] + ": " + value);
+            }
+        }
+        if (ticks < 0) throw new IllegalArgumentException("--ticks must not be negative");
+        if (budgetNanos < 0) throw new IllegalArgumentException("--budget must not be negative");
+        if (threads < 1) throw new IllegalArgumentException("--threads must be greater than 0");
+        return new Options(ticks, seed, target, budgetNanos, collisions, sleep, threads, out);
+    }
+
+    private static boolean flag(String option, String value) {
+        if (!value.equals("true") && !value.equals("false")) {
+            throw new IllegalArgumentException(option + " must be true or false");
+        }
+        return Boolean.parseBoolean(value);
+    }
+
+    private static List<Job> jobs(String[] args, List<URLClassLoader> loaders) throws IOException {
+        var first = 0;
+        while (first < args.length && args[first].startsWith("--")) first += 2;
+
+        final var jobs = new ArrayList<Job>();
+        for (var i = first; i < args.length; i++) {
+            final var path = Path.of(args[i]);
+            final var isJar = args[i].endsWith(".jar") && Files.isRegularFile(path);
+            if (!isJar && !Files.isDirectory(path)) {
+                jobs.add(new Job(args[i], "classpath", Batch.class.getClassLoader()));
+                continue;
+            }
+
+            final var loader = new SetupLoader(path.toUri().toURL());
+            loaders.add(loader);
+            final var names = isJar ? jarClasses(path) : directoryClasses(path);
+            if (names.isEmpty()) throw new IOException("no setup classes in " + path);
+            for (final var name : names) jobs.add(new Job(name, args[i], loader));
+        }
+        return jobs;
+    }
+
+    private static List<String> directoryClasses(Path directory) throws IOException {
+        try (var files = Files.walk(directory)) {
+            return files
+                .filter(Files::isRegularFile)
+                .map(file -> directory.relativize(file).toString().replace(directory.getFileSystem().getSeparator(), "/"))
+                .filter(Batch::isSetupClass)
+                .map(Batch::className)
+                .sorted()
+                .toList();
+        }
+    }
+
+    private static List<String> jarClasses(Path jar) throws IOException {
+        try (var file = new JarFile(jar.toFile())) {
+            return file.stream()
+                .map(entry -> entry.getName())
+                .filter(Batch::isSetupClass)
+                .map(Batch::className)
+                .sorted()
+                .toList();
+        }
+    }
+
+    private static boolean isSetupClass(String file) {
+        return file.endsWith("Setup.class") && !file.startsWith("cars/engine/");
+    }
+
+    private static String className(String file) {
+        return file.substring(0, file.length() - ".class".length()).replace('/', '.');
+    }
+
+    /**
+     * Runs a setup.
+     *
+     * Never throws: failures are reported in the CSV line.
+     */
+    private static Result run(Job job, Options options) {
+        final var thread = Thread.currentThread();
+        final var contextLoader = thread.getContextClassLoader();
+        thread.setContextClassLoader(job.loader());
+
+        Simulation simulation = null;
+        var ticks = 0L;
+        try {
+            final var type = Class.forName(job.setup(), true, job.loader());
+            final var setup = type.getConstructor().newInstance();
+            final var createCars = type.getMethod("createCars");
+            final var cars = Settings.seeded(options.seed(), () -> cars(createCars.invoke(setup)));
+
+            simulation = new Simulation(cars);
+            simulation.setObstacles(optional(type, setup, "createObstacles", Obstacle.class));
+            simulation.setPaths(optional(type, setup, "createPaths", cars.engine.Path.class));
+            simulation.setPool(null);
+            simulation.setCollisionsEnabled(options.collisions());
+            simulation.setSleepEnabled(options.sleep());
+            if (options.budgetNanos() > 0) simulation.setSteeringBudget(options.budgetNanos());
+            simulation.setMousePos(options.target());
+            simulation.setClickPos(options.target());
+
+            final var contacts = new Contacts(simulation);
+            var overruns = 0L;
+            var nanos = 0L;
+            for (; ticks < options.ticks(); ticks++) {
+                final var start = System.nanoTime();
+                simulation.step();
+                nanos += System.nanoTime() - start;
+                overruns += simulation.getOverruns();
+                contacts.update();
+            }
+
+            final var seconds = nanos / 1e9;
+            final var positions = new StringJoiner(";");
+            var totalDistance = 0.0;
+            var maxDistance = 0.0;
+            for (final var car : simulation.getCars()) {
+                final var distance = Math.hypot(car.getPositionX() - options.target().x, car.getPositionY() - options.target().y);
+                totalDistance += distance;
+                maxDistance = Math.max(maxDistance, distance);
+                positions.add(format("%.2f %.2f", car.getPositionX(), car.getPositionY()));
+            }
+            final var count = simulation.getCars().size();
+            System.err.printf("%s (%s): ok%n", job.setup(), job.source());
+            return new Result(true, line(job, "ok", "", count, ticks,
+                format("%.3f", seconds),
+                seconds > 0 ? format("%.1f", ticks / seconds) : "",
+                count > 0 ? format("%.2f", totalDistance / count) : "",
+                count > 0 ? format("%.2f", maxDistance) : "",
+                Long.toString(contacts.collisions),
+                Long.toString(overruns),
+                positions.toString()
+            ));
+        } catch (Throwable t) {
+            final var cause = t instanceof InvocationTargetException e && e.getCause() != null ? e.getCause() : t;
+            final var error = cause.getMessage() == null ? cause.getClass().getName() : cause.getClass().getName() + ": " + cause.getMessage();
+            System.err.printf("%s (%s): failed at tick %d, %s%n", job.setup(), job.source(), ticks, error);
+            return new Result(false, line(job, "failed", error, simulation == null ? 0 : simulation.getCars().size(), ticks,
+                "", "", "", "", "", "", ""));
+        } finally {
+            // Stops the steering workers of this run
+            if (simulation != null && simulation.getSteeringBudget() > 0) simulation.setSteeringBudget(0);
+            thread.setContextClassLoader(contextLoader);
+        }
+    }
+
+    static List<Car> cars(Object result) {
+        if (!(result instanceof List<?> list)) {
+            throw new IllegalStateException("createCars() must return a list of cars");
+        }
+        final var cars = new ArrayList<Car>(list.size());
+        for (final var item : list) {
+            if (!(item instanceof Car car)) throw new IllegalStateException("createCars() returned a " + item);
+            cars.add(car);
+        }
+        return cars;
+    }
+
+    // Setups may leave out createObstacles() and createPaths()
+    static <T> List<T> optional(Class<?> type, Object setup, String name, Class<T> itemType)
+        throws ReflectiveOperationException {
+        final Method method;
+        try {
+            method = type.getMethod(name);
+        } catch (NoSuchMethodException e) {
+            return List.of();
+        }
+        if (!(method.invoke(setup) instanceof List<?> list)) {
+            throw new IllegalStateException(name + "() must return a list");
+        }
+        final var items = new ArrayList<T>(list.size());
+        for (final var item : list) {
+            if (!itemType.isInstance(item)) throw new IllegalStateException(name + "() returned a " + item);
+            items.add(itemType.cast(item));
+        }
+        return items;
+    }
+
+    private static String line(Job job, String status, String error, int cars, long ticks, String... metrics) {
+        final var line = new StringJoiner(",");
+        line.add(escape(job.setup())).add(escape(job.source())).add(status).add(escape(error))
+            .add(Integer.toString(cars)).add(Long.toString(ticks));
+        for (final var metric : metrics) line.add(metric);
+        return line.toString();
+    }
+
+    private static String escape(String value) {
+        if (value.indexOf(',') == -1 && value.indexOf('"') == -1 && value.indexOf('\n') == -1) return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String format(String format, Object... args) {
+        return String.format(Locale.ROOT, format, args);
+    }
+
+    /**
+     * Counts collisions: pairs of cars that touch, but did not in the previous tick. Contacts are
+     * found with the footprints of the collision phase, see {@link Collisions}. When the phase is
+     * on, they are the pairs it found and pushed apart in the tick, otherwise they are detected
+     * after the tick. Cars touching when the run starts did not collide.
+     */
+    private static final class Contacts {
+        private final Simulation simulation;
+        private final Collisions detector = new Collisions();
+        // Pairs in contact, sorted, as first car * cars + second car
+        private long[] touching = new long[64];
+        private long[] next = new long[64];
+        private int touchingCount = 0;
+        long collisions = 0;
+
+        Contacts(Simulation simulation) {
+            this.simulation = simulation;
+            record(detector.detect(simulation.getStore(), simulation.getWidth(), simulation.getHeight()), detector);
+            collisions = 0;
+        }
+
+        void update() {
+            if (simulation.isCollisionsEnabled()) {
+                final var phase = simulation.getCollisionPhase();
+                record(phase.getCollisions(), phase);
+            } else {
+                record(detector.detect(simulation.getStore(), simulation.getWidth(), simulation.getHeight()), detector);
+            }
+        }
+
+        private void record(int count, Collisions pairs) {
+            final var n = simulation.getStore().size();
+            if (next.length < count) next = new long[Math.max(count, 2 * next.length)];
+            for (var k = 0; k < count; k++) {
+                final var a = pairs.getFirstCar(k);
+                final var b = pairs.getSecondCar(k);
+                next[k] = (long) Math.min(a, b) * n + Math.max(a, b);
+            }
+            Arrays.sort(next, 0, count);
+
+            // Both sorted, so new pairs are found in a single pass
+            var j = 0;
+            for (var k = 0; k < count; k++) {
+                while (j < touchingCount && touching[j] < next[k]) j++;
+                if (j == touchingCount || touching[j] != next[k]) collisions++;
+            }
+
+            final var last = touching;
+            touching = next;
+            touchingCount = count;
+            next = last;
+        }
+    }
+
+    /**
+     * Loads classes from its own jar or directory first, so setups with the same class names
+     * don't clash. The engine always comes from the application, so cars can be handed to it.
+     */
+    private static final class SetupLoader extends URLClassLoader {
+        SetupLoader(URL url) {
+            super(new URL[]{url}, Batch.class.getClassLoader());
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (name.startsWith("java.") || name.startsWith("cars.engine.")) return super.loadClass(name, resolve);
+            synchronized (getClassLoadingLock(name)) {
+                var type = findLoadedClass(name);
+                if (type == null) {
+                    try {
+                        type = findClass(name);
+                    } catch (ClassNotFoundException e) {
+                        return super.loadClass(name, resolve);
+                    }
+                }
+                if (resolve) resolveClass(type);
+                return type;
+            }
+        }
+    }
+}
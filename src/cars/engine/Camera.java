@@ -0,0 +1,105 @@
+package cars.engine;
+
+import java.awt.*;
+import java.awt.geom.Rectangle2D;
+
+/**
+ * View of the world shown by the {@link Window}: the world point at the center of the screen,
+ * a zoom factor and, optionally, a car to follow.
+ * <p>
+ * Mouse events move the camera in the event dispatch thread, while the render thread reads it
+ * and keeps it on the followed car, so every method is synchronized. They are all short.
+ */
+final class Camera {
+    static final double MIN_ZOOM = 1.0 / 64;
+    static final double MAX_ZOOM = 16;
+
+    private double x = 0;
+    private double y = 0;
+    private double zoom = 1;
+    private int following = -1;
+
+    /**
+     * Zooms by factor, keeping the world point under the given screen point in place.
+     */
+    synchronized void zoomAt(double screenX, double screenY, double screenWidth, double screenHeight, double factor) {
+        final var newZoom = Math.clamp(zoom * factor, MIN_ZOOM, MAX_ZOOM);
+        // Offset of the screen point from the center, in world units, before and after
+        final var dx = screenX - screenWidth / 2.0;
+        final var dy = screenY - screenHeight / 2.0;
+        if (following == -1) {
+            x += dx / zoom - dx / newZoom;
+            y += dy / zoom - dy / newZoom;
+        }
+        zoom = newZoom;
+    }
+
+    /**
+     * Moves the view by the given amount of screen pixels, and stops following a car.
+     */
+    synchronized void pan(double screenDx, double screenDy) {
+        following = -1;
+        x -= screenDx / zoom;
+        y -= screenDy / zoom;
+    }
+
+    /**
+     * Centers the view on a world point, at the given zoom.
+     */
+    synchronized void set(double x, double y, double zoom) {
+        this.x = x;
+        this.y = y;
+        this.zoom = Math.clamp(zoom, MIN_ZOOM, MAX_ZOOM);
+    }
+
+    synchronized void follow(int car) { following = car; }
+    synchronized int getFollowing() { return following; }
+
+    /**
+     * Centers the world at zoom 1, following no car.
+     */
+    synchronized void reset() {
+        x = 0;
+        y = 0;
+        zoom = 1;
+        following = -1;
+    }
+
+    /**
+     * Keeps the view on the followed car, if any.
+     */
+    synchronized void track(double carX, double carY) {
+        if (following == -1) return;
+        x = carX;
+        y = carY;
+    }
+
+    synchronized double getZoom() { return zoom; }
+
+    /**
+     * Converts a screen point into world coordinates.
+     *
+     * @return out
+     */
+    synchronized Vector2 toWorld(double screenX, double screenY, double screenWidth, double screenHeight, Vector2 out) {
+        return out.set(
+            x + (screenX - screenWidth / 2.0) / zoom,
+            y + (screenY - screenHeight / 2.0) / zoom
+        );
+    }
+
+    /**
+     * Sets up g to draw in world coordinates.
+     *
+     * @param view Receives the world rectangle visible on the screen.
+     */
+    synchronized void apply(Graphics2D g, double screenWidth, double screenHeight, Rectangle2D.Double view) {
+        g.translate(screenWidth / 2.0, screenHeight / 2.0);
+        g.scale(zoom, zoom);
+        g.translate(-x, -y);
+        view.setRect(
+            x - screenWidth / 2.0 / zoom, y - screenHeight / 2.0 / zoom,
+            screenWidth / zoom, screenHeight / zoom
+        );
+    }
+}
@@ -5,87 +5,141 @@ import java.awt.geom.*;
 import java.util.function.Consumer;
 
 import static cars.engine.Vector2.*;
-import static java.lang.Math.toRadians;
 
 public abstract class Car implements Cloneable {
+    // How far a car may drive past the world edge before wrapping to the other side
+    static final double WRAP_MARGIN = 20;
+
     private final Color color;
-    private final double mass;
-    private final double maxForce;
-    private final double maxSpeed;
-    private Vector2 position;
-    private Vector2 velocity;
 
-    // Store last clamped steering (pre-dt) for debug drawing
-    private Vector2 lastSteering = vec2();
+    // Physical state lives in a structure of arrays, shared by all cars of a simulation
+    private CarStore store;
+    private int index;
 
     public Car(Consumer<Settings> settings) {
         var cs = new Settings();
         settings.accept(cs);
         this.color = cs.color;
-        this.position = cs.position;
-        this.velocity = Vector2.byAngle(cs.orientation);
-        this.mass = cs.mass;
-        this.maxForce = cs.maxForce;
-        this.maxSpeed = cs.maxSpeed;
+        final var velocity = Vector2.byAngle(cs.orientation);
+        this.store = new CarStore(1);
+        this.index = store.add(
+            cs.position.x, cs.position.y,
+            velocity.x, velocity.y,
+            cs.mass, cs.maxForce, cs.maxSpeed
+        );
     }
 
     // ---- Accessors ----
-    public Vector2 getPosition() { return position.clone(); }
-    public Vector2 getVelocity() { return velocity.clone(); }
-    public double getSpeed() { return velocity.size(); }
-
-    public Vector2 getDirection() { return velocity.isZero() ? byAngle(0) : normalize(velocity); }
-    public double getMass() { return mass; }
-    public double getMaxForce() { return maxForce; }
-    public double getMaxSpeed() { return maxSpeed; }
-    private Vector2 getLastSteering() { return lastSteering == null ? null : lastSteering.clone(); }
-
-    public abstract Vector2 calculateSteering(World world);
+    public Vector2 getPosition() { return vec2(getPositionX(), getPositionY()); }
+    public Vector2 getVelocity() { return vec2(getVelocityX(), getVelocityY()); }
+    public double getSpeed() { return Math.sqrt(getVelocityX() * getVelocityX() + getVelocityY() * getVelocityY()); }
+
+    public Vector2 getDirection() { return getDirection(vec2()); }
+    public double getMass() { return store.mass[index]; }
+    public double getMaxForce() { return store.maxForce[index]; }
+    public double getMaxSpeed() { return store.maxSpeed[index]; }
+    Color getColor() { return color; }
+
+    // ---- Allocation free accessors, for hot paths ----
+    public double getPositionX() { return store.px[index]; }
+    public double getPositionY() { return store.py[index]; }
+    public double getVelocityX() { return store.vx[index]; }
+    public double getVelocityY() { return store.vy[index]; }
+
+    /**
+     * Copies the position into out.
+     *
+     * @return out
+     */
+    public Vector2 getPosition(Vector2 out) { return out.set(getPositionX(), getPositionY()); }
+
+    /**
+     * Copies the velocity into out.
+     *
+     * @return out
+     */
+    public Vector2 getVelocity(Vector2 out) { return out.set(getVelocityX(), getVelocityY()); }
+
+    /**
+     * Stores the unitary direction of the car into out.
+     *
+     * @return out
+     */
+    public Vector2 getDirection(Vector2 out) {
+        getVelocity(out);
+        return out.isZero() ? out.set(1, 0) : out.normalize();
+    }
 
-    void update(World world) {
-        final var steeringForce = calculateSteering(world);
-        if (steeringForce == null) {
-            lastSteering = vec2();
-            return;
-        }
+    /**
+     * Converts a point of this car's local frame, where x points forward and y to its side, into
+     * world coordinates. The direction is used directly as the rotation, with no trigonometry.
+     *
+     * @return out, which may be local itself.
+     */
+    public Vector2 toWorld(Vector2 local, Vector2 out) {
+        final var c = directionX();
+        final var s = directionY();
+        return out.set(
+            getPositionX() + local.x * c - local.y * s,
+            getPositionY() + local.x * s + local.y * c
+        );
+    }
 
-        lastSteering = truncate(steeringForce, maxForce);
+    /**
+     * Converts a world point into this car's local frame, the inverse of {@link #toWorld}.
+     *
+     * @return out, which may be point itself.
+     */
+    public Vector2 toLocal(Vector2 point, Vector2 out) {
+        final var c = directionX();
+        final var s = directionY();
+        final var dx = point.x - getPositionX();
+        final var dy = point.y - getPositionY();
+        return out.set(dx * c + dy * s, dy * c - dx * s);
+    }
 
-        final var impulse = multiply(lastSteering, world.getSecs()); // F * dt
-        final var acceleration = divide(impulse, mass);              // (F*dt)/m
-        velocity = truncate(add(velocity, acceleration), maxSpeed);
-        position = add(position, multiply(velocity, world.getSecs()));
+    // Components of getDirection(), without a vector
+    private double directionX() {
+        final var speed = getSpeed();
+        return speed * speed < 1e-12 ? 1 : getVelocityX() / speed;
+    }
 
-        final var w = world.getWidth() / 2.0;
-        final var h = world.getHeight() / 2.0;
-        if (position.x < -(w + 20)) position.x =  w;
-        if (position.x >  (w + 20)) position.x = -w;
-        if (position.y < -(h + 20)) position.y =  h;
-        if (position.y >  (h + 20)) position.y = -h;
+    private double directionY() {
+        final var speed = getSpeed();
+        return speed * speed < 1e-12 ? 0 : getVelocityY() / speed;
     }
 
-    // -----------------------------------------------------
-    // Drawing (Java2D)
-    // -----------------------------------------------------
-    void draw(Graphics2D g, boolean debug) {
-        // Car in its local (heading) frame
-        final var g2 = (Graphics2D) g.create();
-        g2.translate(position.x, position.y);
-        g2.rotate(velocity.getAngle());               // radians
-        g2.scale(-0.5, 0.5);                          // mirror X + scale 50% (match JavaFX)
+    /**
+     * Moves this car state into the given store. From now on, the car is a view over it.
+     */
+    void attach(CarStore target) {
+        if (target == store) return;
+        index = target.add(store, index);
+        store = target;
+    }
 
-        drawF1Car80px(g2, color);
+    /**
+     * @return The position of this car in the list of its simulation, once attached.
+     */
+    int getIndex() { return index; }
 
-        g2.dispose();
+    public abstract Vector2 calculateSteering(World world);
 
-        // Debug vectors in WORLD space (no rotation)
-        if (debug) {
-            drawDebugArrows(g);
-        }
+    /**
+     * First update phase: stores the steering force of this tick, computed by
+     * {@link #calculateSteering(World)}. Cars only read the world while steering, so all of them
+     * can steer in parallel against the same state. The force is applied by
+     * {@link CarStore#integrate(double, double, double)}.
+     */
+    void setSteering(Vector2 steering) {
+        store.setSteering(index, steering);
     }
 
-    // ----- F1 car, authored at 80px, drawn with 50% scale above -----
-    private static void drawF1Car80px(Graphics2D g, Color bodyColor) {
+    // -----------------------------------------------------
+    // Drawing (Java2D)
+    // -----------------------------------------------------
+    // ----- F1 car, authored at 80px, drawn with 50% scale by CarRenderer -----
+    static void drawF1Car80px(Graphics2D g, Color bodyColor) {
         final var L = 80.0;
         final var W = 36.0;
         final var halfL = L / 2.0;
@@ -147,48 +201,12 @@ public abstract class Car implements Cloneable {
         g.setStroke(oldStroke);
     }
 
-    // ----- Debug arrows (WORLD space) -----
-    private void drawDebugArrows(Graphics2D g) {
-        final var origin = add(position, multiply(getDirection(), 12));
-        drawArrow(g, origin, velocity, 0.20, new Color(0, 0, 255));           // BLUE
-        drawArrow(g, origin, getLastSteering(), 0.10, new Color(255, 69, 0)); // ORANGERED
-    }
-
-    private static void drawArrow(Graphics2D g, Vector2 origin, Vector2 vector, double scale, Color color) {
-        if (Vector2.isZero(vector)) return;
-
-        final var tip = add(origin, multiply(vector, scale));
-        final var dir = subtract(tip, origin);
-
-        final var oldComp = g.getComposite();
-        final var oldStroke = g.getStroke();
-        final var oldColor = g.getColor();
-
-        g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.25f));
-        g.setColor(color);
-        g.setStroke(new BasicStroke(3f));
-
-        g.draw(new Line2D.Double(origin.x, origin.y, tip.x, tip.y));
-
-        final var angle = dir.getAngle();
-        final var a = toRadians(30);
-        final var head = 8.0;
-        final var p1 = subtract(tip, byAngleSize(angle - a, head));
-        final var p2 = subtract(tip, byAngleSize(angle + a, head));
-        g.draw(new Line2D.Double(tip.x, tip.y, p1.x, p1.y));
-        g.draw(new Line2D.Double(tip.x, tip.y, p2.x, p2.y));
-
-        g.setComposite(oldComp);
-        g.setStroke(oldStroke);
-        g.setColor(oldColor);
-    }
-
     @Override
     public Car clone() {
         try {
             final var other = (Car) super.clone();
-            other.position = position.clone();
-            other.velocity = velocity.clone();
+            other.store = new CarStore(1);
+            other.index = other.store.add(store, index);
             return other;
         } catch (CloneNotSupportedException ignored) {
             return null;
@@ -196,6 +214,12 @@ public abstract class Car implements Cloneable {
     }
 
     public static double distance(Car car1, Car car2) {
-        return Vector2.distance(car1.position, car2.position);
+        return Math.sqrt(distanceSqr(car1, car2));
+    }
+
+    public static double distanceSqr(Car car1, Car car2) {
+        final var dx = car1.getPositionX() - car2.getPositionX();
+        final var dy = car1.getPositionY() - car2.getPositionY();
+        return dx * dx + dy * dy;
     }
 }
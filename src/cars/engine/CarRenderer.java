@@ -0,0 +1,221 @@
+package cars.engine;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+import static java.lang.Math.toRadians;
+
+/**
+ * Draws the cars of a {@link Snapshot}.
+ * <p>
+ * Works only on snapshot data, so it can run in its own thread while the simulation advances.
+ * A renderer reuses its scratch objects and must be used by one thread at a time.
+ * <p>
+ * Only the cars that can touch the visible rectangle are drawn. Each new snapshot is indexed
+ * once in a {@link SpatialGrid}, like the one of the neighbor queries, so culling costs as
+ * much as the cars on screen, not as the whole world.
+ */
+final class CarRenderer {
+    // ----- Debug arrows (WORLD space) -----
+    private static final Color VELOCITY_COLOR = new Color(0, 0, 255);   // BLUE
+    private static final Color STEERING_COLOR = new Color(255, 69, 0);  // ORANGERED
+    private static final Composite ARROW_COMPOSITE = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.25f);
+    private static final Stroke ARROW_STROKE = new BasicStroke(3f);
+    private static final double ARROW_HEAD_ANGLE = toRadians(30);
+    // Arrow head sides are the arrow direction rotated by this, computed once
+    private static final double ARROW_HEAD_COS = Math.cos(ARROW_HEAD_ANGLE);
+    private static final double ARROW_HEAD_SIN = Math.sin(ARROW_HEAD_ANGLE);
+    private static final double ARROW_HEAD_SIZE = 8.0;
+    // Ring around cars whose steering overran its time budget
+    private static final Color OVERRUN_COLOR = new Color(220, 0, 0);
+    private static final double OVERRUN_RADIUS = 26.0;
+    // Smaller ring around sleeping cars
+    private static final Color ASLEEP_COLOR = new Color(120, 120, 160);
+    private static final double ASLEEP_RADIUS = 22.0;
+
+    // Farthest a car body reaches from its position
+    private static final double CAR_REACH = 28.0;
+    // Debug arrows start this far ahead of the car
+    private static final double ARROW_OFFSET = 12.0;
+    private static final double VELOCITY_SCALE = 0.20;
+    private static final double STEERING_SCALE = 0.10;
+
+    private final CarSprites sprites = new CarSprites();
+
+    // Culling, see cull()
+    private final SpatialGrid index = new SpatialGrid();
+    private long indexed = -1;          // sequence of the indexed snapshot
+    private double moveReach;           // farthest a car is drawn from its indexed position
+    private double arrowReach;          // farthest a debug arrow reaches from its car
+    private int[] visible = new int[0];
+    private int visibleCount = 0;
+    private final Line2D.Double line = new Line2D.Double();
+    private final AffineTransform heading = new AffineTransform();
+    private final int[] triangleX = new int[3];
+    private final int[] triangleY = new int[3];
+
+    /**
+     * Picks the cars that may show up in the view, for the next {@link #draw}.
+     *
+     * @param view  Visible world rectangle.
+     * @param debug Whether debug arrows will be drawn, they reach farther than the cars.
+     * @return The number of cars picked.
+     */
+    int cull(Snapshot snapshot, Rectangle2D view, boolean debug) {
+        if (indexed != snapshot.sequence || snapshot.sequence == -1) index(snapshot);
+        final var margin = CAR_REACH + moveReach + (debug ? arrowReach : 0);
+        visibleCount = index.inRect(
+            view.getMinX() - margin, view.getMinY() - margin,
+            view.getMaxX() + margin, view.getMaxY() + margin,
+            visible
+        );
+        // Keep the list order, so overlapping cars don't swap as they cross cells
+        Arrays.sort(visible, 0, visibleCount);
+        return visibleCount;
+    }
+
+    private void index(Snapshot snapshot) {
+        final var n = snapshot.count;
+        if (visible.length < n) visible = new int[n];
+        index.rebuild(snapshot.px, snapshot.py, n, snapshot.width, snapshot.height);
+        indexed = snapshot.sequence;
+
+        moveReach = 0;
+        arrowReach = 0;
+        for (var i = 0; i < n; i++) {
+            final var dx = Math.abs(snapshot.px[i] - snapshot.ppx[i]);
+            final var dy = Math.abs(snapshot.py[i] - snapshot.ppy[i]);
+            // Cars are not interpolated across a wrap around
+            if (dx < Car.WRAP_MARGIN && dy < Car.WRAP_MARGIN) moveReach = Math.max(moveReach, Math.max(dx, dy));
+            final var velocity = Math.hypot(snapshot.vx[i], snapshot.vy[i]) * VELOCITY_SCALE;
+            final var steering = Math.hypot(snapshot.fx[i], snapshot.fy[i]) * STEERING_SCALE;
+            arrowReach = Math.max(arrowReach, Math.max(velocity, steering));
+        }
+        arrowReach += ARROW_OFFSET + ARROW_HEAD_SIZE;
+    }
+
+    /**
+     * Draws the cars picked by the last {@link #cull}, between their previous and current position.
+     *
+     * @param alpha       How far, from 0 to 1, rendering is between the last two ticks.
+     * @param highQuality Draws the vector car model instead of the cached sprites.
+     * @param lowDetail   Draws just an oriented triangle, for crowded or zoomed out scenes.
+     */
+    void draw(Graphics2D g, Snapshot snapshot, double alpha, boolean debug, boolean highQuality, boolean lowDetail) {
+        for (var k = 0; k < visibleCount; k++) {
+            final var i = visible[k];
+            var x = snapshot.px[i];
+            var y = snapshot.py[i];
+            // Do not interpolate across a wrap around
+            final var prevX = snapshot.ppx[i];
+            final var prevY = snapshot.ppy[i];
+            final var dx = x - prevX;
+            final var dy = y - prevY;
+            if (Math.abs(dx) < Car.WRAP_MARGIN && Math.abs(dy) < Car.WRAP_MARGIN) {
+                x = prevX + dx * alpha;
+                y = prevY + dy * alpha;
+            }
+
+            // The heading, used directly as the rotation matrix of the car
+            final var vx = snapshot.vx[i];
+            final var vy = snapshot.vy[i];
+            final var speed = Math.sqrt(vx * vx + vy * vy);
+            final var dirX = speed < 1e-6 ? 1 : vx / speed;
+            final var dirY = speed < 1e-6 ? 0 : vy / speed;
+            final var color = snapshot.color[i];
+            if (lowDetail) {
+                drawLowDetail(g, color, x, y, dirX, dirY);
+            } else if (!highQuality) {
+                sprites.draw(g, color, x, y, dirX, dirY);
+            } else {
+                // Car in its local (heading) frame
+                final var g2 = (Graphics2D) g.create();
+                heading.setTransform(dirX, dirY, -dirY, dirX, x, y);
+                g2.transform(heading);
+                g2.scale(-0.5, 0.5);                          // mirror X + scale 50% (match JavaFX)
+
+                Car.drawF1Car80px(g2, color);
+
+                g2.dispose();
+            }
+
+            // Debug vectors in WORLD space (no rotation)
+            if (debug) {
+                drawDebugArrows(g, x, y, dirX, dirY, vx, vy, snapshot.fx[i], snapshot.fy[i]);
+                if (snapshot.overrun[i]) drawRing(g, OVERRUN_COLOR, OVERRUN_RADIUS, x, y);
+                if (snapshot.asleep[i]) drawRing(g, ASLEEP_COLOR, ASLEEP_RADIUS, x, y);
+            }
+        }
+    }
+
+    // ----- Low detail: a triangle with the drawn car footprint (40px x 18px) -----
+    private void drawLowDetail(Graphics2D g, Color color, double x, double y, double dirX, double dirY) {
+        final var halfL = 20.0;
+        final var halfW = 9.0;
+
+        triangleX[0] = (int) Math.round(x + dirX * halfL);
+        triangleY[0] = (int) Math.round(y + dirY * halfL);
+        triangleX[1] = (int) Math.round(x - dirX * halfL - dirY * halfW);
+        triangleY[1] = (int) Math.round(y - dirY * halfL + dirX * halfW);
+        triangleX[2] = (int) Math.round(x - dirX * halfL + dirY * halfW);
+        triangleY[2] = (int) Math.round(y - dirY * halfL - dirX * halfW);
+
+        g.setColor(color);
+        g.fillPolygon(triangleX, triangleY, 3);
+    }
+
+    private void drawDebugArrows(Graphics2D g, double x, double y, double dirX, double dirY,
+                                 double vx, double vy, double fx, double fy) {
+        final var originX = x + dirX * ARROW_OFFSET;
+        final var originY = y + dirY * ARROW_OFFSET;
+
+        final var oldComp = g.getComposite();
+        final var oldStroke = g.getStroke();
+        final var oldColor = g.getColor();
+        g.setComposite(ARROW_COMPOSITE);
+        g.setStroke(ARROW_STROKE);
+
+        drawArrow(g, originX, originY, vx, vy, VELOCITY_SCALE, VELOCITY_COLOR);
+        drawArrow(g, originX, originY, fx, fy, STEERING_SCALE, STEERING_COLOR);
+
+        g.setComposite(oldComp);
+        g.setStroke(oldStroke);
+        g.setColor(oldColor);
+    }
+
+    private void drawRing(Graphics2D g, Color color, double radius, double x, double y) {
+        g.setColor(color);
+        g.drawOval(
+            (int) Math.round(x - radius), (int) Math.round(y - radius),
+            (int) (2 * radius), (int) (2 * radius)
+        );
+    }
+
+    private void drawArrow(Graphics2D g, double originX, double originY,
+                           double vx, double vy, double scale, Color color) {
+        final var sizeSqr = vx * vx + vy * vy;
+        if (sizeSqr < 1e-12) return;
+
+        final var tipX = originX + vx * scale;
+        final var tipY = originY + vy * scale;
+
+        g.setColor(color);
+        line.setLine(originX, originY, tipX, tipY);
+        g.draw(line);
+
+        // Both sides point back from the tip, rotated from the arrow direction by the head angle
+        final var size = Math.sqrt(sizeSqr);
+        final var dirX = vx / size;
+        final var dirY = vy / size;
+        drawArrowHead(g, tipX, tipY, dirX * ARROW_HEAD_COS + dirY * ARROW_HEAD_SIN, dirY * ARROW_HEAD_COS - dirX * ARROW_HEAD_SIN);
+        drawArrowHead(g, tipX, tipY, dirX * ARROW_HEAD_COS - dirY * ARROW_HEAD_SIN, dirY * ARROW_HEAD_COS + dirX * ARROW_HEAD_SIN);
+    }
+
+    private void drawArrowHead(Graphics2D g, double tipX, double tipY, double sideX, double sideY) {
+        line.setLine(tipX, tipY, tipX - sideX * ARROW_HEAD_SIZE, tipY - sideY * ARROW_HEAD_SIZE);
+        g.draw(line);
+    }
+}
@@ -0,0 +1,64 @@
+package cars.engine;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cache of rasterized car sprites, keyed by body color.
+ * <p>
+ * Drawing the vector F1 model builds a gradient, a dozen shapes and strokes for every car on
+ * every frame. Instead, each color is rasterized once, with antialiasing, into a compatible
+ * image that Java2D can keep in video memory, and then blitted with an affine transform.
+ * <p>
+ * Not thread safe: a renderer draws from one thread at a time.
+ */
+final class CarSprites {
+    // Sprite bounds around the car center, in drawn (already scaled to 50%) pixels
+    private static final int HALF_LENGTH = 24;
+    private static final int HALF_WIDTH = 14;
+    // Rasterize at a higher resolution, so transformed blits stay sharp
+    private static final int OVERSAMPLE = 2;
+
+    // Colors hash by their RGB, so a lookup neither boxes nor allocates
+    private final Map<Color, BufferedImage> sprites = new HashMap<>();
+    private final AffineTransform transform = new AffineTransform();
+
+    /**
+     * Draws a car centered at x, y heading to the given unit direction, which is used directly as
+     * the rotation matrix.
+     */
+    void draw(Graphics2D g, Color color, double x, double y, double dirX, double dirY) {
+        var image = sprites.get(color);
+        if (image == null) {
+            image = rasterize(g.getDeviceConfiguration(), color);
+            sprites.put(color, image);
+        }
+
+        transform.setTransform(dirX, dirY, -dirY, dirX, x, y);
+        transform.scale(1.0 / OVERSAMPLE, 1.0 / OVERSAMPLE);
+        transform.translate(-image.getWidth() / 2.0, -image.getHeight() / 2.0);
+        g.drawImage(image, transform, null);
+    }
+
+    private static BufferedImage rasterize(GraphicsConfiguration gc, Color color) {
+        final var width = 2 * HALF_LENGTH * OVERSAMPLE;
+        final var height = 2 * HALF_WIDTH * OVERSAMPLE;
+        final var image = gc == null ?
+            new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE) :
+            gc.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+
+        final var g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+        g.translate(width / 2.0, height / 2.0);
+        g.scale(OVERSAMPLE, OVERSAMPLE);
+        g.scale(-0.5, 0.5);                          // same frame used by Car.drawF1Car80px
+        Car.drawF1Car80px(g, color);
+        g.dispose();
+        return image;
+    }
+}
@@ -0,0 +1,226 @@
+package cars.engine;
+
+import java.util.Arrays;
+
+/**
+ * Structure of arrays holding the physical state of many cars.
+ * <p>
+ * Each {@link Car} is a view over one index of a store. A car starts alone in its own store
+ * and is moved into the shared store of a {@link Simulation}, so the integration of the whole
+ * world is a single allocation-free loop over primitive arrays.
+ */
+final class CarStore {
+    double[] px;        // position
+    double[] py;
+    double[] ppx;       // position before the last integration
+    double[] ppy;
+    double[] vx;        // velocity
+    double[] vy;
+    double[] fx;        // truncated steering force of the current tick
+    double[] fy;
+    double[] mass;
+    double[] maxForce;
+    double[] maxSpeed;
+    boolean[] steered;  // false if the car returned no steering force this tick
+    boolean[] asleep;   // skipped by the simulation, see Sleep
+    int[] idleTicks;    // ticks in a row the car barely moved and steered
+
+    private int size = 0;
+
+    CarStore(int capacity) {
+        px = new double[capacity];
+        py = new double[capacity];
+        ppx = new double[capacity];
+        ppy = new double[capacity];
+        vx = new double[capacity];
+        vy = new double[capacity];
+        fx = new double[capacity];
+        fy = new double[capacity];
+        mass = new double[capacity];
+        maxForce = new double[capacity];
+        maxSpeed = new double[capacity];
+        steered = new boolean[capacity];
+        asleep = new boolean[capacity];
+        idleTicks = new int[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds a new car.
+     *
+     * @return The car index.
+     */
+    int add(double x, double y, double velX, double velY,
+            double mass, double maxForce, double maxSpeed) {
+        final var i = size;
+        ensureCapacity(i + 1);
+        px[i] = ppx[i] = x;
+        py[i] = ppy[i] = y;
+        vx[i] = velX;
+        vy[i] = velY;
+        fx[i] = fy[i] = 0;
+        this.mass[i] = mass;
+        this.maxForce[i] = maxForce;
+        this.maxSpeed[i] = maxSpeed;
+        steered[i] = false;
+        asleep[i] = false;
+        idleTicks[i] = 0;
+        size++;
+        return i;
+    }
+
+    /**
+     * Copies the car at the given index of another store into this one.
+     *
+     * @return The car index in this store.
+     */
+    int add(CarStore other, int index) {
+        final var i = add(other.px[index], other.py[index], other.vx[index], other.vy[index],
+            other.mass[index], other.maxForce[index], other.maxSpeed[index]);
+        ppx[i] = other.ppx[index];
+        ppy[i] = other.ppy[index];
+        fx[i] = other.fx[index];
+        fy[i] = other.fy[index];
+        steered[i] = other.steered[index];
+        asleep[i] = other.asleep[index];
+        idleTicks[i] = other.idleTicks[index];
+        return i;
+    }
+
+    /**
+     * Stores the steering force of a car, truncated to its max force.
+     * Called once per car, possibly from several threads, during the steering phase.
+     */
+    void setSteering(int i, Vector2 steering) {
+        if (steering == null) {
+            steered[i] = false;
+            fx[i] = fy[i] = 0;
+            return;
+        }
+        steered[i] = true;
+        fx[i] = steering.x;
+        fy[i] = steering.y;
+        final var max = maxForce[i];
+        final var sizeSqr = fx[i] * fx[i] + fy[i] * fy[i];
+        if (sizeSqr > max * max) {
+            final var k = 1.0 / Math.sqrt(sizeSqr);
+            fx[i] = fx[i] * k * max;
+            fy[i] = fy[i] * k * max;
+        }
+    }
+
+    /**
+     * Applies the steering forces of all cars and wraps them around the world borders.
+     */
+    void integrate(double secs, double width, double height) {
+        integrate(0, size, secs, width, height);
+    }
+
+    /**
+     * Integrates the cars from index from, inclusive, to index to, exclusive. This is the scalar
+     * reference for {@link Integrator}: other backends must give exactly the same results.
+     */
+    void integrate(int from, int to, double secs, double width, double height) {
+        final var w = width / 2.0;
+        final var h = height / 2.0;
+        for (var i = from; i < to; i++) {
+            ppx[i] = px[i];
+            ppy[i] = py[i];
+            if (!steered[i]) continue;
+
+            // (F * dt) / m, through the reciprocal like Vector2.divide, whose 1.0f is widened to double
+            final var inv = 1.0 / mass[i];
+            var x = vx[i] + fx[i] * secs * inv;
+            var y = vy[i] + fy[i] * secs * inv;
+
+            final var max = maxSpeed[i];
+            final var sizeSqr = x * x + y * y;
+            if (sizeSqr > max * max) {
+                final var k = 1.0 / Math.sqrt(sizeSqr);
+                x = x * k * max;
+                y = y * k * max;
+            }
+            vx[i] = x;
+            vy[i] = y;
+
+            var nx = px[i] + x * secs;
+            var ny = py[i] + y * secs;
+            if (nx < -(w + Car.WRAP_MARGIN)) nx =  w;
+            if (nx >  (w + Car.WRAP_MARGIN)) nx = -w;
+            if (ny < -(h + Car.WRAP_MARGIN)) ny =  h;
+            if (ny >  (h + Car.WRAP_MARGIN)) ny = -h;
+            px[i] = nx;
+            py[i] = ny;
+        }
+    }
+
+    /**
+     * @return Doubles needed by {@link #save} to hold the moving state of all cars.
+     */
+    int stateSize() {
+        return 11 * size;
+    }
+
+    /**
+     * Copies the moving state of all cars (positions, velocities, forces, sleep) into out, from offset.
+     * Mass and limits never change, so they are left out.
+     */
+    void save(double[] out, int offset) {
+        final var n = size;
+        System.arraycopy(px, 0, out, offset, n);
+        System.arraycopy(py, 0, out, offset + n, n);
+        System.arraycopy(ppx, 0, out, offset + 2 * n, n);
+        System.arraycopy(ppy, 0, out, offset + 3 * n, n);
+        System.arraycopy(vx, 0, out, offset + 4 * n, n);
+        System.arraycopy(vy, 0, out, offset + 5 * n, n);
+        System.arraycopy(fx, 0, out, offset + 6 * n, n);
+        System.arraycopy(fy, 0, out, offset + 7 * n, n);
+        for (var i = 0; i < n; i++) {
+            out[offset + 8 * n + i] = steered[i] ? 1 : 0;
+            out[offset + 9 * n + i] = asleep[i] ? 1 : 0;
+            out[offset + 10 * n + i] = idleTicks[i];
+        }
+    }
+
+    /**
+     * Restores the state copied by {@link #save}.
+     */
+    void load(double[] in, int offset) {
+        final var n = size;
+        System.arraycopy(in, offset, px, 0, n);
+        System.arraycopy(in, offset + n, py, 0, n);
+        System.arraycopy(in, offset + 2 * n, ppx, 0, n);
+        System.arraycopy(in, offset + 3 * n, ppy, 0, n);
+        System.arraycopy(in, offset + 4 * n, vx, 0, n);
+        System.arraycopy(in, offset + 5 * n, vy, 0, n);
+        System.arraycopy(in, offset + 6 * n, fx, 0, n);
+        System.arraycopy(in, offset + 7 * n, fy, 0, n);
+        for (var i = 0; i < n; i++) {
+            steered[i] = in[offset + 8 * n + i] != 0;
+            asleep[i] = in[offset + 9 * n + i] != 0;
+            idleTicks[i] = (int) in[offset + 10 * n + i];
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= px.length) return;
+        final var n = Math.max(capacity, px.length * 2);
+        px = Arrays.copyOf(px, n);
+        py = Arrays.copyOf(py, n);
+        ppx = Arrays.copyOf(ppx, n);
+        ppy = Arrays.copyOf(ppy, n);
+        vx = Arrays.copyOf(vx, n);
+        vy = Arrays.copyOf(vy, n);
+        fx = Arrays.copyOf(fx, n);
+        fy = Arrays.copyOf(fy, n);
+        mass = Arrays.copyOf(mass, n);
+        maxForce = Arrays.copyOf(maxForce, n);
+        maxSpeed = Arrays.copyOf(maxSpeed, n);
+        steered = Arrays.copyOf(steered, n);
+        asleep = Arrays.copyOf(asleep, n);
+        idleTicks = Arrays.copyOf(idleTicks, n);
+    }
+}
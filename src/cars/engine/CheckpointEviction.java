@@ -0,0 +1,22 @@
+package cars.engine;
+
+/**
+ * What a {@link Simulation} does when a new checkpoint is taken and all checkpoint slots are used.
+ *
+ * @see Simulation#setCheckpoints(int, CheckpointEviction)
+ */
+public enum CheckpointEviction {
+    /**
+     * Drops the oldest checkpoint, keeping the most recent history.
+     */
+    OLDEST,
+    /**
+     * Drops the checkpoint whose neighbors in time are closest to each other, so the remaining
+     * ones stay spread over the whole run. The first one and the newest one are always kept.
+     */
+    THIN,
+    /**
+     * Keeps every checkpoint: taking a new one fails until one is released.
+     */
+    REJECT
+}
@@ -0,0 +1,143 @@
+package cars.engine;
+
+/**
+ * Bounded pool of checkpoint buffers, see {@link Simulation#checkpoint()}.
+ * <p>
+ * Each slot is a plain double array, allocated the first time the slot is used and then
+ * overwritten by later checkpoints, so once the pool is warm taking checkpoints does not allocate.
+ * Checkpoint ids grow with time, so the oldest checkpoint is the one with the smallest id.
+ */
+final class Checkpoints {
+    private final int capacity;
+    private final CheckpointEviction eviction;
+    private final double[][] data;
+    private final long[] ids;
+    private final long[] ticks;
+    private final boolean[] used;
+    private final int[] order;          // scratch, slots sorted by tick
+    private long nextId = 0;
+
+    Checkpoints(int capacity, CheckpointEviction eviction) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be greater than 0");
+        }
+        if (eviction == null) {
+            throw new IllegalArgumentException("eviction must not be null");
+        }
+        this.capacity = capacity;
+        this.eviction = eviction;
+        this.data = new double[capacity][];
+        this.ids = new long[capacity];
+        this.ticks = new long[capacity];
+        this.used = new boolean[capacity];
+        this.order = new int[capacity];
+    }
+
+    /**
+     * Takes a slot for a new checkpoint, evicting one if all are used.
+     *
+     * @param size Doubles the checkpoint needs.
+     * @return The slot, already holding the id of the new checkpoint.
+     */
+    int reserve(long tick, int size) {
+        var slot = free();
+        if (slot == -1) slot = evict();
+        if (data[slot] == null || data[slot].length < size) data[slot] = new double[size];
+        used[slot] = true;
+        ids[slot] = nextId++;
+        ticks[slot] = tick;
+        return slot;
+    }
+
+    double[] data(int slot) { return data[slot]; }
+    long id(int slot) { return ids[slot]; }
+
+    /**
+     * @return The slot of the checkpoint, or -1 if there is no such checkpoint.
+     */
+    int find(long id) {
+        for (var slot = 0; slot < capacity; slot++) {
+            if (used[slot] && ids[slot] == id) return slot;
+        }
+        return -1;
+    }
+
+    /**
+     * Frees the slot of the checkpoint, keeping its buffer for reuse.
+     *
+     * @return False if there is no such checkpoint.
+     */
+    boolean release(long id) {
+        final var slot = find(id);
+        if (slot == -1) return false;
+        used[slot] = false;
+        return true;
+    }
+
+    int size() {
+        var size = 0;
+        for (final var u : used) if (u) size++;
+        return size;
+    }
+
+    private int free() {
+        for (var slot = 0; slot < capacity; slot++) {
+            if (!used[slot]) return slot;
+        }
+        return -1;
+    }
+
+    private int evict() {
+        return switch (eviction) {
+            case OLDEST -> oldest();
+            case THIN -> thinnest();
+            case REJECT -> throw new IllegalStateException(
+                "all %d checkpoints are in use, release one first".formatted(capacity)
+            );
+        };
+    }
+
+    private int oldest() {
+        var oldest = 0;
+        for (var slot = 1; slot < capacity; slot++) {
+            if (ids[slot] < ids[oldest]) oldest = slot;
+        }
+        return oldest;
+    }
+
+    // The checkpoint whose removal leaves the smallest gap between its neighbors in time. The
+    // first and last ones are kept, as is the newest. Ties drop the oldest. All slots are used.
+    private int thinnest() {
+        // Insertion sort of the slots by tick, there are just a few
+        for (var k = 0; k < capacity; k++) {
+            var j = k;
+            while (j > 0 && before(k, order[j - 1])) {
+                order[j] = order[j - 1];
+                j--;
+            }
+            order[j] = k;
+        }
+
+        var newest = 0;
+        for (var slot = 1; slot < capacity; slot++) {
+            if (ids[slot] > ids[newest]) newest = slot;
+        }
+
+        var evicted = -1;
+        var smallestGap = Long.MAX_VALUE;
+        for (var k = 1; k < capacity - 1; k++) {
+            final var slot = order[k];
+            if (slot == newest) continue;
+            final var gap = ticks[order[k + 1]] - ticks[order[k - 1]];
+            if (evicted == -1 || gap < smallestGap || gap == smallestGap && ids[slot] < ids[evicted]) {
+                smallestGap = gap;
+                evicted = slot;
+            }
+        }
+        return evicted == -1 ? oldest() : evicted;
+    }
+
+    private boolean before(int slot, int other) {
+        return ticks[slot] < ticks[other] || ticks[slot] == ticks[other] && ids[slot] < ids[other];
+    }
+}
@@ -0,0 +1,307 @@
+package cars.engine;
+
+import java.util.Arrays;
+
+/**
+ * Collision phase of a {@link Simulation}: keeps cars from driving through each other.
+ * <p>
+ * Each car is a capsule that matches its drawn model, 40 by 18 pixels: a segment along its
+ * direction with a radius of half its width. After integration:
+ * <ol>
+ *     <li>a {@link SpatialGrid} with cells as large as two cars pairs the cars that may touch;</li>
+ *     <li>for each pair whose capsules overlap, the closest points of their segments give the
+ *     contact normal and depth. The cars are pushed apart along the normal, in proportion to
+ *     their inverse masses, and an impulse removes the speed at which they approach each other.</li>
+ * </ol>
+ * The cars are copied in the order of the grid cells first, so pairs read nearby memory, and
+ * copied back at the end. Contacts are solved one after the other, in that order, over a few
+ * passes, so the results are deterministic. Cars are not pushed past their max speed. Cars
+ * touching across the wrap around of the world are not checked.
+ * <p>
+ * Not thread safe: it runs in the thread that steps the simulation.
+ */
+final class Collisions implements SpatialGrid.PairConsumer {
+    // Capsule of the drawn model: 40 long and 18 wide
+    static final double RADIUS = 9;
+    static final double HALF_SEGMENT = 20 - RADIUS;
+    // Farthest apart the centers of two touching cars can be
+    private static final double REACH = 2 * (HALF_SEGMENT + RADIUS);
+    private static final double CONTACT_DISTANCE = 2 * RADIUS;
+
+    // Bounciness, from 0 (cars stick) to 1 (no speed lost)
+    private static final double RESTITUTION = 0.2;
+    // Fraction of the overlap removed by each pass, and overlap left alone to avoid jitter
+    private static final double CORRECTION = 0.8;
+    private static final double SLOP = 0.05;
+    private static final int PASSES = 3;
+
+    private final SpatialGrid grid = new SpatialGrid(REACH);
+
+    // Cars of the current tick, in grid order
+    private double[] px = new double[0];
+    private double[] py = new double[0];
+    private double[] vx = new double[0];
+    private double[] vy = new double[0];
+    private double[] inverseMass = new double[0];
+    private double[] dirX = new double[0];   // heading when the phase starts, the capsule axis
+    private double[] dirY = new double[0];
+    private int[] touches = new int[0];
+
+    // Candidate pairs, then the pairs in contact, of the current tick
+    private int[] pairA = new int[64];
+    private int[] pairB = new int[64];
+    private int pairCount = 0;
+
+    // Results of the last tick, per car
+    private int[] contacts = new int[0];
+    private int collisions = 0;
+
+    // Scratch of the contact being solved
+    private double normalX;
+    private double normalY;
+    private double depth;
+
+    /**
+     * Finds and solves the contacts between all cars of the store.
+     *
+     * @return The number of pairs of cars in contact.
+     */
+    int resolve(CarStore store, double width, double height) {
+        final var n = store.size();
+        findCandidates(store, n, width, height);
+
+        // The first pass keeps the pairs in contact, the others only go over those
+        var touching = 0;
+        for (var k = 0; k < pairCount; k++) {
+            final var a = pairA[k];
+            final var b = pairB[k];
+            if (!touch(a, b)) continue;
+            solve(a, b);
+            touches[a]++;
+            touches[b]++;
+            pairA[touching] = a;
+            pairB[touching] = b;
+            touching++;
+        }
+        for (var pass = 1; pass < PASSES; pass++) {
+            for (var k = 0; k < touching; k++) {
+                if (touch(pairA[k], pairB[k])) solve(pairA[k], pairB[k]);
+            }
+        }
+
+        scatter(store, n);
+        collisions = touching;
+        return collisions;
+    }
+
+    /**
+     * Finds the pairs of cars of the store in contact, as {@link #resolve(CarStore, double, double)}
+     * would, but leaves the cars where they are.
+     *
+     * @return The number of pairs of cars in contact.
+     */
+    int detect(CarStore store, double width, double height) {
+        final var n = store.size();
+        findCandidates(store, n, width, height);
+
+        var touching = 0;
+        for (var k = 0; k < pairCount; k++) {
+            final var a = pairA[k];
+            final var b = pairB[k];
+            if (!touch(a, b)) continue;
+            touches[a]++;
+            touches[b]++;
+            pairA[touching] = a;
+            pairB[touching] = b;
+            touching++;
+        }
+
+        for (var slot = 0; slot < n; slot++) contacts[grid.itemAt(slot)] = touches[slot];
+        collisions = touching;
+        return collisions;
+    }
+
+    private void findCandidates(CarStore store, int n, double width, double height) {
+        if (contacts.length < n) grow(n);
+        grid.rebuild(store.px, store.py, n, width, height);
+        gather(store, n);
+
+        pairCount = 0;
+        grid.forEachPair(this);
+    }
+
+    private void grow(int n) {
+        px = new double[n];
+        py = new double[n];
+        vx = new double[n];
+        vy = new double[n];
+        inverseMass = new double[n];
+        dirX = new double[n];
+        dirY = new double[n];
+        touches = new int[n];
+        contacts = new int[n];
+    }
+
+    private void gather(CarStore store, int n) {
+        for (var slot = 0; slot < n; slot++) {
+            final var i = grid.itemAt(slot);
+            px[slot] = store.px[i];
+            py[slot] = store.py[i];
+            vx[slot] = store.vx[i];
+            vy[slot] = store.vy[i];
+            inverseMass[slot] = 1.0 / store.mass[i];
+            touches[slot] = 0;
+
+            // As Car.getDirection()
+            final var speedSqr = vx[slot] * vx[slot] + vy[slot] * vy[slot];
+            final var speed = Math.sqrt(speedSqr);
+            dirX[slot] = speedSqr < 1e-12 ? 1 : vx[slot] / speed;
+            dirY[slot] = speedSqr < 1e-12 ? 0 : vy[slot] / speed;
+        }
+    }
+
+    // Copies back the cars that were touched, not faster than their max speed
+    private void scatter(CarStore store, int n) {
+        for (var slot = 0; slot < n; slot++) {
+            final var i = grid.itemAt(slot);
+            contacts[i] = touches[slot];
+            if (touches[slot] == 0) continue;
+            store.px[i] = px[slot];
+            store.py[i] = py[slot];
+
+            final var max = store.maxSpeed[i];
+            final var speedSqr = vx[slot] * vx[slot] + vy[slot] * vy[slot];
+            final var k = speedSqr > max * max ? max / Math.sqrt(speedSqr) : 1;
+            store.vx[i] = vx[slot] * k;
+            store.vy[i] = vy[slot] * k;
+        }
+    }
+
+    /**
+     * Broadphase: keeps the pairs whose bounding circles overlap.
+     */
+    @Override
+    public void accept(int a, int b) {
+        final var dx = px[b] - px[a];
+        final var dy = py[b] - py[a];
+        if (dx * dx + dy * dy >= REACH * REACH) return;
+        if (pairCount == pairA.length) {
+            pairA = Arrays.copyOf(pairA, pairCount * 2);
+            pairB = Arrays.copyOf(pairB, pairCount * 2);
+        }
+        pairA[pairCount] = a;
+        pairB[pairCount] = b;
+        pairCount++;
+    }
+
+    /**
+     * Narrowphase: finds the closest points of the capsule segments of both cars.
+     *
+     * @return True if they overlap, with the normal, from a to b, and the depth of the contact.
+     */
+    private boolean touch(int a, int b) {
+        // Segments from p - d * HALF_SEGMENT to p + d * HALF_SEGMENT
+        final var ax = dirX[a] * HALF_SEGMENT;
+        final var ay = dirY[a] * HALF_SEGMENT;
+        final var bx = dirX[b] * HALF_SEGMENT;
+        final var by = dirY[b] * HALF_SEGMENT;
+        final var d1x = 2 * ax;
+        final var d1y = 2 * ay;
+        final var d2x = 2 * bx;
+        final var d2y = 2 * by;
+        final var rx = (px[a] - ax) - (px[b] - bx);
+        final var ry = (py[a] - ay) - (py[b] - by);
+
+        // Closest points of two segments, both with a length of 2 * HALF_SEGMENT
+        final var length = d1x * d1x + d1y * d1y;
+        final var dot = d1x * d2x + d1y * d2y;
+        final var c = d1x * rx + d1y * ry;
+        final var f = d2x * rx + d2y * ry;
+        final var denominator = length * length - dot * dot;
+        var s = denominator > 1e-12 ? Math.clamp((dot * f - c * length) / denominator, 0.0, 1.0) : 0.0;
+        var t = (dot * s + f) / length;
+        if (t < 0) {
+            t = 0;
+            s = Math.clamp(-c / length, 0.0, 1.0);
+        } else if (t > 1) {
+            t = 1;
+            s = Math.clamp((dot - c) / length, 0.0, 1.0);
+        }
+
+        // From the closest point of a to the closest point of b
+        final var nx = d2x * t - d1x * s - rx;
+        final var ny = d2y * t - d1y * s - ry;
+        final var distanceSqr = nx * nx + ny * ny;
+        if (distanceSqr >= CONTACT_DISTANCE * CONTACT_DISTANCE) return false;
+
+        final var distance = Math.sqrt(distanceSqr);
+        if (distance > 1e-9) {
+            normalX = nx / distance;
+            normalY = ny / distance;
+        } else {
+            // Segments cross, push apart along the line between the centers, or sideways
+            final var cx = px[b] - px[a];
+            final var cy = py[b] - py[a];
+            final var centers = Math.sqrt(cx * cx + cy * cy);
+            normalX = centers > 1e-9 ? cx / centers : -dirY[a];
+            normalY = centers > 1e-9 ? cy / centers : dirX[a];
+        }
+        depth = CONTACT_DISTANCE - distance;
+        return true;
+    }
+
+    /**
+     * Pushes both cars apart along the contact normal and removes their approaching speed.
+     */
+    private void solve(int a, int b) {
+        final var inverseA = inverseMass[a];
+        final var inverseB = inverseMass[b];
+        final var inverseSum = inverseA + inverseB;
+
+        final var correction = Math.max(depth - SLOP, 0) * CORRECTION / inverseSum;
+        px[a] -= normalX * correction * inverseA;
+        py[a] -= normalY * correction * inverseA;
+        px[b] += normalX * correction * inverseB;
+        py[b] += normalY * correction * inverseB;
+
+        // Speed of b towards a, along the normal
+        final var approach = (vx[b] - vx[a]) * normalX + (vy[b] - vy[a]) * normalY;
+        if (approach >= 0) return;
+        final var impulse = -(1 + RESTITUTION) * approach / inverseSum;
+        vx[a] -= normalX * impulse * inverseA;
+        vy[a] -= normalY * impulse * inverseA;
+        vx[b] += normalX * impulse * inverseB;
+        vy[b] += normalY * impulse * inverseB;
+    }
+
+    /**
+     * @return The number of pairs of cars in contact in the last tick.
+     */
+    int getCollisions() { return collisions; }
+
+    /**
+     * @param pair From 0 to {@link #getCollisions()}, exclusive.
+     * @return The index, in the store, of one car of a pair in contact in the last tick.
+     */
+    int getFirstCar(int pair) { return grid.itemAt(pairA[pair]); }
+
+    /**
+     * @return The index, in the store, of the other car of the pair.
+     */
+    int getSecondCar(int pair) { return grid.itemAt(pairB[pair]); }
+
+    /**
+     * @return How many cars the given car was in contact with in the last tick.
+     */
+    int getContacts(int car) {
+        return car < contacts.length ? contacts[car] : 0;
+    }
+
+    /**
+     * Forgets the contacts of the last tick, e.g. after the simulation state was restored.
+     */
+    void clear() {
+        Arrays.fill(contacts, 0);
+        collisions = 0;
+    }
+}
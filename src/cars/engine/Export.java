@@ -0,0 +1,495 @@
+package cars.engine;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import java.awt.*;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders a recording, or a setup run on the spot, into video frames, with no window.
+ * <p>
+ * Frames are taken at a fixed rate, interpolated between ticks like on screen, and drawn by the
+ * same {@link CarRenderer} as the {@link Window} into images of a fixed size. The images come
+ * from a small pool: while encoder threads turn some of them into PNG files, or into raw RGB
+ * bytes, the next frames are drawn into the others. When every image is waiting to be encoded,
+ * drawing waits for the oldest one.
+ * <p>
+ * The simulation, or the recording, runs in a thread of its own, and keeps going while drawing
+ * waits: it copies the ticks of the next frames into a buffer of snapshots, up to a few seconds
+ * of them. Only when that buffer is full too does it wait for drawing. That is on purpose: an
+ * export never drops a frame, so its frames are the same however slow the encoders are, and its
+ * memory stays bounded. Nothing runs in real time, so exports usually run faster than it.
+ * <p>
+ * Usage:
+ * <pre>
+ * java -cp jcars.jar cars.engine.Export [options] (recording file | setup class name)
+ *   --out path      directory for the PNG frames, or file for the RGB stream, "-" for the standard output
+ *   --format f      png (frame-000000.png, ...) or rgb (raw 24 bit RGB frames, one after the other), png by default
+ *   --size WxH      frame size, 1280x720 by default
+ *   --fps n         frames per second, 30 by default
+ *   --seconds s     length to export, the whole recording or 60 seconds of a setup by default
+ *   --seed n        seed of random positions, orientations and colors of a setup, 0 by default
+ *   --zoom z        zoom, by default the whole world fits the frame
+ *   --center x,y    world point at the center of the frame, 0,0 by default
+ *   --follow n      keeps the car at this index at the center of the frame
+ *   --debug         draws the debug arrows, and the paths
+ *   --vector        draws the vector car model instead of the sprites
+ *   --threads n     encoder threads, the number of cores by default
+ * </pre>
+ * An RGB stream can be piped into a video encoder, e.g.
+ * {@code ffmpeg -f rawvideo -pix_fmt rgb24 -s 1280x720 -r 30 -i - run.mp4}.
+ */
+public final class Export {
+    // Same colors as the Window
+    private static final Color BACKGROUND = new Color(220, 220, 220);
+    private static final Color OUTSIDE = new Color(150, 150, 150);
+    // Length exported from a setup, if not given
+    private static final double DEFAULT_SECONDS = 60;
+    // A fast deflate level: PNGs twice as fast as the default, and a little bigger
+    private static final float PNG_COMPRESSION = 0.75f;
+    // Frames the simulation may run ahead of drawing, at most, and the memory their snapshots may take
+    private static final int MAX_AHEAD_FRAMES = 256;
+    private static final long AHEAD_BYTES = 256L << 20;
+    // Snapshot bytes of a car: eight doubles, two flags and a color reference
+    private static final int SNAPSHOT_CAR_BYTES = 8 * Double.BYTES + 2 + 4;
+
+    private enum Format { PNG, RGB }
+
+    private record Options(String source, Path out, Format format, int width, int height, double fps,
+                           double seconds, long seed, double zoom, Vector2 center, int follow,
+                           boolean debug, boolean vector, int threads) {}
+
+    /**
+     * An image to draw a frame into, and the bytes of the frame once encoded as RGB.
+     */
+    private record Slot(BufferedImage image, byte[] rgb) {}
+
+    private record Pending(Future<?> encoding, Slot slot) {}
+
+    /**
+     * The tick to draw a frame from, and how far the frame is past the tick before it.
+     */
+    private static final class Frame {
+        final Snapshot snapshot = new Snapshot();
+        double alpha;
+    }
+
+    // Queued by the simulation thread after the last frame
+    private static final Frame END = new Frame();
+
+    /**
+     * A simulation or a recording, moved forward one tick at a time.
+     */
+    private interface Source extends AutoCloseable {
+        double getDt();
+        /**
+         * @return Seconds to export if not told otherwise.
+         */
+        double getLength();
+        long getTick();
+        int getCarCount();
+        /**
+         * @return False at the end of a recording.
+         */
+        boolean next();
+        void copyTo(Snapshot snapshot);
+        List<Obstacle> getObstacles();
+        List<cars.engine.Path> getPaths();
+        @Override
+        void close() throws IOException;
+    }
+
+    private final Options options;
+    private final Source source;
+    private final CarRenderer renderer = new CarRenderer();
+    private final SceneryLayer scenery = new SceneryLayer();
+    private final RenderQuality quality = new RenderQuality(
+        Long.MAX_VALUE, RenderQuality.LOW_DETAIL_CARS, RenderQuality.LOW_DETAIL_PIXELS
+    );
+    private final Camera camera = new Camera();
+    private final Rectangle2D.Double view = new Rectangle2D.Double();
+    private final Rectangle2D.Double bounds = new Rectangle2D.Double();
+    private final Vector2 point = new Vector2();
+
+    private Export(Options options, Source source) {
+        this.options = options;
+        this.source = source;
+    }
+
+    public static void main(String[] args) {
+        final Options options;
+        try {
+            options = parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("usage: java -cp jcars.jar cars.engine.Export --out path [--format png|rgb] [--size WxH]"
+                + " [--fps n] [--seconds s] [--seed n] [--zoom z] [--center x,y] [--follow n] [--debug] [--vector]"
+                + " [--threads n] (recording file | setup class name)");
+            System.exit(2);
+            return;
+        }
+
+        try (var source = open(options)) {
+            new Export(options, source).run();
+        } catch (Exception e) {
+            final var cause = e instanceof InvocationTargetException i && i.getCause() != null ? i.getCause() : e;
+            System.err.println("Export failed: " + (cause instanceof IOException ? cause.getMessage() : cause));
+            System.exit(1);
+        }
+    }
+
+    private static Options parse(String[] args) {
+        Path out = null;
+        var format = Format.PNG;
+        var width = 1280;
+        var height = 720;
+        var fps = 30.0;
+        var seconds = Double.NaN;
+        var seed = 0L;
+        var zoom = Double.NaN;
+        var center = Vector2.vec2();
+        var follow = -1;
+        var debug = false;
+        var vector = false;
+        var threads = Runtime.getRuntime().availableProcessors();
+        var i = 0;
+        for (; i < args.length && args[i].startsWith("--"); i++) {
+            final var option = args[i];
+            if (option.equals("--debug")) {
+                debug = true;
+                continue;
+            }
+            if (option.equals("--vector")) {
+                vector = true;
+                continue;
+            }
+            if (++i == args.length) throw new IllegalArgumentException("missing value of " + option);
+            final var value = args[i];
+            try {
+                switch (option) {
+                    case "--out" -> out = Path.of(value);
+                    case "--format" -> format = Format.valueOf(value.toUpperCase(Locale.ROOT));
+                    case "--size" -> {
+                        final var size = value.split("x");
+                        if (size.length != 2) throw new IllegalArgumentException("--size must be WxH");
+                        width = Integer.parseInt(size[0]);
+                        height = Integer.parseInt(size[1]);
+                    }
+                    case "--fps" -> fps = Double.parseDouble(value);
+                    case "--seconds" -> seconds = Double.parseDouble(value);
+                    case "--seed" -> seed = Long.parseLong(value);
+                    case "--zoom" -> zoom = Double.parseDouble(value);
+                    case "--center" -> {
+                        final var xy = value.split(",");
+                        if (xy.length != 2) throw new IllegalArgumentException("--center must be x,y");
+                        center = Vector2.vec2(Double.parseDouble(xy[0]), Double.parseDouble(xy[1]));
+                    }
+                    case "--follow" -> follow = Integer.parseInt(value);
+                    case "--threads" -> threads = Integer.parseInt(value);
+                    default -> throw new IllegalArgumentException("unknown option " + option);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("bad value of " + option + ": " + value);
+            } catch (IllegalArgumentException e) {
+                if (option.equals("--format")) throw new IllegalArgumentException("--format must be png or rgb");
+                throw e;
+            }
+        }
+        if (i != args.length - 1) throw new IllegalArgumentException("expected one recording or setup");
+        if (out == null) throw new IllegalArgumentException("--out is required");
+        if (out.toString().equals("-") && format != Format.RGB) {
+            throw new IllegalArgumentException("only --format rgb can be written to the standard output");
+        }
+        if (width < 1 || height < 1) throw new IllegalArgumentException("--size must be at least 1x1");
+        if (!(fps > 0)) throw new IllegalArgumentException("--fps must be greater than 0");
+        if (seconds < 0) throw new IllegalArgumentException("--seconds must not be negative");
+        if (zoom <= 0) throw new IllegalArgumentException("--zoom must be greater than 0");
+        if (threads < 1) throw new IllegalArgumentException("--threads must be greater than 0");
+        return new Options(args[i], out, format, width, height, fps, seconds, seed, zoom, center, follow,
+            debug, vector, threads);
+    }
+
+    private static Source open(Options options) throws Exception {
+        final var file = Path.of(options.source());
+        if (Files.isRegularFile(file)) {
+            final var replayer = new Replayer(file);
+            if (replayer.getFrameCount() == 0) {
+                replayer.close();
+                throw new IOException("empty recording: " + file);
+            }
+            return new Recording(replayer);
+        }
+
+        final Class<?> type;
+        try {
+            type = Class.forName(options.source());
+        } catch (ClassNotFoundException e) {
+            throw new IOException("no recording or setup class named " + options.source());
+        }
+        final var setup = type.getConstructor().newInstance();
+        final var createCars = type.getMethod("createCars");
+        final var simulation = new Simulation(Settings.seeded(options.seed(), () -> Batch.cars(createCars.invoke(setup))));
+        simulation.setObstacles(Batch.optional(type, setup, "createObstacles", Obstacle.class));
+        simulation.setPaths(Batch.optional(type, setup, "createPaths", cars.engine.Path.class));
+        return new Run(simulation);
+    }
+
+    private void run() throws IOException, InterruptedException {
+        final var rgb = options.format() == Format.RGB;
+        final var stdout = options.out().toString().equals("-");
+        if (!rgb) Files.createDirectories(options.out());
+        final var stream = !rgb ? null : new BufferedOutputStream(
+            stdout ? System.out : Files.newOutputStream(options.out()), 1 << 20
+        );
+
+        // One image per encoder, one being drawn and one ready to encode
+        final var free = new ArrayDeque<Slot>();
+        for (var i = 0; i < options.threads() + 2; i++) {
+            free.add(new Slot(
+                new BufferedImage(options.width(), options.height(), BufferedImage.TYPE_INT_RGB),
+                rgb ? new byte[options.width() * options.height() * 3] : null
+            ));
+        }
+        final var pending = new ArrayDeque<Pending>();
+        final ExecutorService encoders = Executors.newFixedThreadPool(options.threads(), task -> {
+            final var thread = new Thread(task, "encoder");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Snapshots of the frames the simulation ran ahead of drawing, and spare ones to fill
+        final var ahead = (int) Math.clamp(
+            AHEAD_BYTES / Math.max((long) source.getCarCount() * SNAPSHOT_CAR_BYTES, 1), 2, MAX_AHEAD_FRAMES
+        );
+        final var spare = new ArrayBlockingQueue<Frame>(ahead);
+        for (var i = 0; i < ahead; i++) spare.add(new Frame());
+        final var ready = new ArrayBlockingQueue<Frame>(ahead + 1);
+        final var seconds = Double.isNaN(options.seconds()) ? source.getLength() : options.seconds();
+        final var frames = (long) Math.floor(seconds * options.fps() + 1e-9) + 1;
+        final var simulation = Executors.newSingleThreadExecutor(task -> {
+            final var thread = new Thread(task, "simulation");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        final var start = System.nanoTime();
+        var frame = 0L;
+        try {
+            final var stepping = simulation.submit(() -> {
+                step(frames, spare, ready);
+                return null;
+            });
+            for (var next = ready.take(); next != END; next = ready.take(), frame++) {
+                if (free.isEmpty()) finish(pending.remove(), free, stream);
+                final var slot = free.remove();
+                final var g = slot.image().createGraphics();
+                draw(g, next.snapshot, next.alpha);
+                g.dispose();
+                spare.add(next);
+
+                final var file = options.out().resolve("frame-%06d.png".formatted(frame));
+                pending.add(new Pending(encoders.submit(() -> {
+                    if (rgb) toRgb(slot.image(), slot.rgb());
+                    else writePng(slot.image(), file);
+                    return null;
+                }), slot));
+            }
+            finish(stepping);
+            while (!pending.isEmpty()) finish(pending.remove(), free, stream);
+        } finally {
+            // The source is closed after this, so the simulation thread must be done with it
+            simulation.shutdownNow();
+            simulation.awaitTermination(1, TimeUnit.MINUTES);
+            encoders.shutdownNow();
+            if (stream != null) {
+                if (stdout) stream.flush();
+                else stream.close();
+            }
+        }
+
+        final var elapsed = (System.nanoTime() - start) / 1e9;
+        final var length = Math.max(frame - 1, 0) / options.fps();
+        System.err.printf(Locale.ROOT, "%d frames (%.1fs of simulation) in %.1fs, %.1f frames/s, %.1fx real time%n",
+            frame, length, elapsed, frame / elapsed, length / elapsed);
+    }
+
+    /**
+     * Runs the source through the ticks of the frames, in the simulation thread, and queues a
+     * snapshot of each frame, then {@link #END}, even if it fails.
+     */
+    private void step(long frames, BlockingQueue<Frame> spare, BlockingQueue<Frame> ready) throws InterruptedException {
+        final var dt = source.getDt();
+        try {
+            for (var frame = 0L; frame < frames; frame++) {
+                // The tick at or just after the frame time, drawn part of the way from the one before
+                final var time = frame / options.fps();
+                final var tick = (long) Math.ceil(time / dt - 1e-9);
+                if (!advance(tick)) break;
+
+                final var next = spare.take();
+                source.copyTo(next.snapshot);
+                // The renderer indexes a snapshot again only when its sequence changes
+                next.snapshot.sequence = source.getTick();
+                next.alpha = Math.clamp(1 - (tick * dt - time) / dt, 0.0, 1.0);
+                ready.add(next);
+            }
+        } finally {
+            // Every frame is either spare or ready, so there is always room for it
+            ready.add(END);
+        }
+    }
+
+    /**
+     * Moves the source up to the given tick.
+     *
+     * @return False if a recording ended before it.
+     */
+    private boolean advance(long tick) {
+        while (source.getTick() < tick) {
+            if (!source.next()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Rethrows what made the simulation thread fail, if anything did.
+     */
+    private static void finish(Future<?> stepping) throws IOException, InterruptedException {
+        try {
+            stepping.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Waits for a frame to be encoded, writes it if it is part of a stream, and frees its image.
+     */
+    private static void finish(Pending pending, ArrayDeque<Slot> free, OutputStream stream)
+        throws IOException, InterruptedException {
+        try {
+            pending.encoding().get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+        if (stream != null) stream.write(pending.slot().rgb());
+        free.add(pending.slot());
+    }
+
+    private static void writePng(BufferedImage image, Path file) throws IOException {
+        final var writers = ImageIO.getImageWritersByFormatName("png");
+        if (!writers.hasNext()) throw new IOException("no PNG encoder");
+        final var writer = writers.next();
+        final var param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(PNG_COMPRESSION);
+        Files.deleteIfExists(file);
+        try (var out = ImageIO.createImageOutputStream(file.toFile())) {
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static void toRgb(BufferedImage image, byte[] rgb) {
+        final var pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        for (int i = 0, j = 0; i < pixels.length; i++) {
+            final var pixel = pixels[i];
+            rgb[j++] = (byte) (pixel >> 16);
+            rgb[j++] = (byte) (pixel >> 8);
+            rgb[j++] = (byte) pixel;
+        }
+    }
+
+    private void draw(Graphics2D g, Snapshot snapshot, double alpha) {
+        quality.apply(g);
+        final var width = options.width();
+        final var height = options.height();
+        g.setBackground(OUTSIDE);
+        g.clearRect(0, 0, width, height);
+
+        final var zoom = Double.isNaN(options.zoom())
+            ? Math.min(width / snapshot.width, height / snapshot.height)
+            : options.zoom();
+        final var follow = options.follow();
+        if (follow >= 0 && follow < snapshot.count) {
+            snapshot.interpolate(follow, alpha, point);
+            camera.set(point.x, point.y, zoom);
+        } else {
+            camera.set(options.center().x, options.center().y, zoom);
+        }
+        camera.apply(g, width, height, view);
+
+        g.setColor(BACKGROUND);
+        bounds.setRect(-snapshot.width / 2, -snapshot.height / 2, snapshot.width, snapshot.height);
+        g.fill(bounds);
+        scenery.draw(g, source.getObstacles(), source.getPaths(), options.debug(), width, height);
+
+        final var visible = renderer.cull(snapshot, view, options.debug());
+        final var lowDetail = quality.isLowDetail(visible, camera.getZoom());
+        renderer.draw(g, snapshot, alpha, options.debug(), options.vector(), lowDetail);
+    }
+
+    // ---- Sources ----
+
+    private record Run(Simulation simulation) implements Source {
+        @Override public double getDt() { return simulation.getDt(); }
+        @Override public double getLength() { return DEFAULT_SECONDS; }
+        @Override public long getTick() { return simulation.getTicks(); }
+        @Override public int getCarCount() { return simulation.getCars().size(); }
+        @Override public List<Obstacle> getObstacles() { return simulation.getObstacles(); }
+        @Override public List<cars.engine.Path> getPaths() { return simulation.getPaths(); }
+
+        @Override
+        public boolean next() {
+            simulation.step();
+            return true;
+        }
+
+        @Override
+        public void copyTo(Snapshot snapshot) { snapshot.copyFrom(simulation, null); }
+
+        @Override
+        public void close() {}
+    }
+
+    private record Recording(Replayer replayer) implements Source {
+        @Override public double getDt() { return replayer.getDt(); }
+        @Override public double getLength() { return (replayer.getFrameCount() - 1) * replayer.getDt(); }
+        @Override public long getTick() { return replayer.getFrame(); }
+        @Override public int getCarCount() { return replayer.getCarCount(); }
+        // Obstacles and paths are not recorded
+        @Override public List<Obstacle> getObstacles() { return List.of(); }
+        @Override public List<cars.engine.Path> getPaths() { return List.of(); }
+
+        @Override
+        public boolean next() { return replayer.next(); }
+
+        @Override
+        public void copyTo(Snapshot snapshot) { snapshot.copyFrom(replayer, null); }
+
+        @Override
+        public void close() throws IOException { replayer.close(); }
+    }
+}
@@ -0,0 +1,89 @@
+package cars.engine;
+
+/**
+ * Faster, approximate, versions of the trigonometric functions of {@link Math}.
+ * <ul>
+ *     <li>{@link #sin(double)} and {@link #cos(double)} interpolate a table of 4096 samples of a
+ *     full turn. Their error is below {@link #SIN_COS_MAX_ERROR} for arguments up to
+ *     {@link #MAX_ARGUMENT} radians; larger, infinite and NaN arguments go to {@link Math}. Like
+ *     {@link Math#sin(double)}, the sine of a zero is that zero, sign included.</li>
+ *     <li>{@link #atan2(double, double)} reduces the angle to the first octant and evaluates an
+ *     odd polynomial of degree 11. Its error is below {@link #ATAN2_MAX_ERROR}. Zeros, infinities
+ *     and NaN give the same results as {@link Math#atan2(double, double)}.</li>
+ * </ul>
+ * The results do not depend on the JVM or the hardware. They are used by {@link Vector2} when
+ * {@link Vector2#setFastMath(boolean) fast math} is on.
+ */
+public final class FastMath {
+    /**
+     * Largest absolute error of {@link #sin(double)} and {@link #cos(double)}.
+     */
+    public static final double SIN_COS_MAX_ERROR = 3e-7;
+    /**
+     * Largest absolute error of {@link #atan2(double, double)}, in radians.
+     */
+    public static final double ATAN2_MAX_ERROR = 2e-6;
+    /**
+     * Largest argument, in absolute value, that {@link #sin(double)} and {@link #cos(double)}
+     * look up in their table.
+     */
+    public static final double MAX_ARGUMENT = 1e6;
+
+    private static final int STEPS = 4096;
+    private static final int MASK = STEPS - 1;
+    private static final double STEPS_PER_RADIAN = STEPS / (2 * Math.PI);
+    // One more sample, so interpolation never wraps around
+    private static final double[] SIN = new double[STEPS + 1];
+
+    static {
+        for (var i = 0; i < STEPS; i++) SIN[i] = Math.sin(i / STEPS_PER_RADIAN);
+        SIN[STEPS] = SIN[0];
+    }
+
+    // atan(x) = x * P(x^2) in [0, 1]
+    private static final double A1 = 0.99997726;
+    private static final double A3 = -0.33262347;
+    private static final double A5 = 0.19354346;
+    private static final double A7 = -0.11643287;
+    private static final double A9 = 0.05265332;
+    private static final double A11 = -0.01172120;
+
+    private FastMath() {}
+
+    public static double sin(double radians) {
+        if (!(Math.abs(radians) <= MAX_ARGUMENT)) return Math.sin(radians);
+        // The table would give +0.0 for -0.0
+        if (radians == 0) return radians;
+        return lookup(radians * STEPS_PER_RADIAN);
+    }
+
+    public static double cos(double radians) {
+        if (!(Math.abs(radians) <= MAX_ARGUMENT)) return Math.cos(radians);
+        // A quarter turn ahead
+        return lookup(radians * STEPS_PER_RADIAN + STEPS / 4.0);
+    }
+
+    private static double lookup(double steps) {
+        final var floor = Math.floor(steps);
+        final var i = (int) ((long) floor & MASK);
+        return SIN[i] + (SIN[i + 1] - SIN[i]) * (steps - floor);
+    }
+
+    public static double atan2(double y, double x) {
+        final var ax = Math.abs(x);
+        final var ay = Math.abs(y);
+        // Zeros, infinities and NaN
+        if (!(ax < Double.POSITIVE_INFINITY && ay < Double.POSITIVE_INFINITY) || ax == 0 && ay == 0) {
+            return Math.atan2(y, x);
+        }
+
+        // atan of a ratio in [0, 1], then back to the right octant
+        final var steep = ay > ax;
+        final var t = steep ? ax / ay : ay / ax;
+        final var t2 = t * t;
+        var angle = t * (A1 + t2 * (A3 + t2 * (A5 + t2 * (A7 + t2 * (A9 + t2 * A11)))));
+        if (steep) angle = Math.PI / 2 - angle;
+        if (x < 0) angle = Math.PI - angle;
+        return Math.copySign(angle, y);
+    }
+}
@@ -0,0 +1,92 @@
+package cars.engine;
+
+import java.util.Arrays;
+
+/**
+ * Log-linear histogram of non-negative long values, in the spirit of HdrHistogram.
+ * <p>
+ * Values below 64 are counted exactly. Above that, each power of two is split into 32
+ * linear buckets, so any recorded value is reported within about 3% of its true value.
+ * Recording is a couple of bit operations and never allocates. Not thread safe.
+ */
+public final class Histogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;          // buckets per power of two
+    private static final int EXACT = SUB_COUNT * 2;              // values counted exactly
+    private static final int BUCKETS = EXACT + (63 - SUB_BITS - 1) * SUB_COUNT;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count = 0;
+    private long total = 0;
+    private long min = Long.MAX_VALUE;
+    private long max = 0;
+
+    /**
+     * Records a value. Negative values are recorded as zero.
+     */
+    public void record(long value) {
+        value = Math.max(value, 0);
+        counts[index(value)]++;
+        count++;
+        total += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds all values recorded by other histogram to this one.
+     */
+    public void add(Histogram other) {
+        for (var i = 0; i < BUCKETS; i++) counts[i] += other.counts[i];
+        count += other.count;
+        total += other.total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        total = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    public long getCount() { return count; }
+    public long getTotal() { return total; }
+    public long getMin() { return count == 0 ? 0 : min; }
+    public long getMax() { return max; }
+    public double getMean() { return count == 0 ? 0 : (double) total / count; }
+
+    /**
+     * @param percentile Percentile, from 0 to 100.
+     * @return The highest value equivalent to the value at the given percentile, or 0 if empty.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) return 0;
+        final var target = Math.max(1, (long) Math.ceil(Math.clamp(percentile, 0, 100) / 100.0 * count));
+        var seen = 0L;
+        for (var i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= target) return Math.min(highestEquivalent(i), max);
+        }
+        return max;
+    }
+
+    private static int index(long value) {
+        if (value < EXACT) return (int) value;
+        final var exponent = 63 - Long.numberOfLeadingZeros(value);    // >= SUB_BITS + 1
+        final var shift = exponent - SUB_BITS;
+        final var sub = (int) (value >>> shift) & (SUB_COUNT - 1);
+        return EXACT + (exponent - SUB_BITS - 1) * SUB_COUNT + sub;
+    }
+
+    private static long highestEquivalent(int index) {
+        if (index < EXACT) return index;
+        final var exponent = (index - EXACT) / SUB_COUNT + SUB_BITS + 1;
+        final var sub = (index - EXACT) % SUB_COUNT;
+        final var shift = exponent - SUB_BITS;
+        final var lowest = (long) (SUB_COUNT + sub) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
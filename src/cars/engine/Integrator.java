@@ -0,0 +1,109 @@
+package cars.engine;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Backend of the integration phase, chosen once at startup with {@code -Dcars.integrator}:
+ * {@code scalar}, {@code vector} or {@code auto}, the default.
+ * <p>
+ * {@link #VECTOR} needs the incubating module {@code jdk.incubator.vector}, added to the JVM with
+ * {@code --add-modules jdk.incubator.vector}. Before it is chosen, it integrates a sample of cars
+ * that goes through every branch of the scalar loop, and must match {@link #SCALAR} bit for bit.
+ * When the module is missing or the results differ, the scalar loop is used instead.
+ */
+enum Integrator {
+    /**
+     * The plain loop of {@link CarStore#integrate(double, double, double)}.
+     */
+    SCALAR {
+        @Override
+        void integrate(CarStore store, double secs, double width, double height) {
+            store.integrate(secs, width, height);
+        }
+    },
+    /**
+     * Several cars at once, in the lanes of the widest SIMD registers of the machine.
+     */
+    VECTOR {
+        @Override
+        void integrate(CarStore store, double secs, double width, double height) {
+            VectorIntegrator.integrate(store, secs, width, height);
+        }
+    };
+
+    static final Integrator DEFAULT = select(System.getProperty("cars.integrator", "auto"));
+
+    /**
+     * Applies the steering forces of all cars of the store and wraps them around the world borders.
+     */
+    abstract void integrate(CarStore store, double secs, double width, double height);
+
+    private static Integrator select(String name) {
+        final var vector = "vector".equalsIgnoreCase(name);
+        if ("scalar".equalsIgnoreCase(name)) return SCALAR;
+        if (!vector && !"auto".equalsIgnoreCase(name)) {
+            System.err.println("Unknown integrator " + name + ", expected auto, scalar or vector");
+        }
+
+        final var problem = checkVector();
+        if (problem == null) return VECTOR;
+        if (vector) System.err.println("Using the scalar integrator, the vector one " + problem);
+        return SCALAR;
+    }
+
+    /**
+     * @return Why the vector integrator can't be used, or null if it can.
+     */
+    private static String checkVector() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return "needs --add-modules jdk.incubator.vector";
+        }
+        try {
+            final var sample = sample();
+            final var expected = copy(sample);
+            final var actual = copy(sample);
+            // Two ticks, so the second one starts from wrapped and truncated state
+            for (var tick = 0; tick < 2; tick++) {
+                SCALAR.integrate(expected, Simulation.DEFAULT_DT, Window.INITIAL_WIDTH, Window.INITIAL_HEIGHT);
+                VECTOR.integrate(actual, Simulation.DEFAULT_DT, Window.INITIAL_WIDTH, Window.INITIAL_HEIGHT);
+            }
+            final var expectedState = new double[expected.stateSize()];
+            final var actualState = new double[actual.stateSize()];
+            expected.save(expectedState, 0);
+            actual.save(actualState, 0);
+            return Arrays.equals(expectedState, actualState) ? null : "does not match the scalar one";
+        } catch (LinkageError | RuntimeException e) {
+            return "failed: " + e;
+        }
+    }
+
+    /**
+     * Cars at all sorts of speeds, some of them not steering, and many about to leave the world.
+     * The count is not a multiple of any vector length, so the scalar tail is checked too.
+     */
+    private static CarStore sample() {
+        final var random = new Random(0);
+        final var count = 1027;
+        final var store = new CarStore(count);
+        final var steering = new Vector2();
+        final var w = Window.INITIAL_WIDTH / 2.0 + Car.WRAP_MARGIN;
+        final var h = Window.INITIAL_HEIGHT / 2.0 + Car.WRAP_MARGIN;
+        for (var i = 0; i < count; i++) {
+            final var maxSpeed = random.nextDouble(1, 400);
+            store.add(
+                random.nextDouble(-w - 2, w + 2), random.nextDouble(-h - 2, h + 2),
+                random.nextDouble(-2, 2) * maxSpeed, random.nextDouble(-2, 2) * maxSpeed,
+                random.nextDouble(0.1, 10), random.nextDouble(0, 1000), maxSpeed
+            );
+            store.setSteering(i, i % 7 == 0 ? null : steering.set(random.nextGaussian() * 500, random.nextGaussian() * 500));
+        }
+        return store;
+    }
+
+    private static CarStore copy(CarStore store) {
+        final var copy = new CarStore(store.size());
+        for (var i = 0; i < store.size(); i++) copy.add(store, i);
+        return copy;
+    }
+}
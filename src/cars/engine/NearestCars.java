@@ -0,0 +1,94 @@
+package cars.engine;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * The k cars nearest to a point, sorted by distance, as a read-only list.
+ * <p>
+ * Candidates are offered in any order and kept by insertion into a small sorted array, which
+ * beats a heap for the few neighbors steering behaviors usually ask for. Ties are broken by the
+ * car index in the world list, so the result does not depend on the order cars were offered,
+ * and the grid and the brute-force scan agree. The arrays only grow, so once warmed up a query
+ * does not allocate. Instances are per thread scratch buffers, see {@link NeighborScratch}.
+ */
+final class NearestCars extends AbstractList<Car> implements RandomAccess {
+    private Car[] cars = new Car[8];
+    private double[] distanceSqr = new double[8];
+    private int[] indexes = new int[8];
+    private int size = 0;
+    private int k = 0;
+    private double maxDistanceSqr = 0;
+
+    /**
+     * Empties the list for a new query.
+     *
+     * @param k         Maximum number of cars to keep.
+     * @param maxRadius Cars farther than this are rejected.
+     */
+    void reset(int k, double maxRadius) {
+        Arrays.fill(cars, 0, size, null);
+        this.size = 0;
+        this.k = k;
+        this.maxDistanceSqr = maxRadius < 0 ? -1 : maxRadius * maxRadius;
+    }
+
+    /**
+     * Keeps the car if it is among the k nearest offered so far.
+     *
+     * @param index Index of the car in the world list.
+     */
+    void offer(Car car, int index, double distSqr) {
+        if (distSqr > maxDistanceSqr) return;
+        if (size == k) {
+            if (k == 0 || !before(distSqr, index, size - 1)) return;
+            size--;
+        }
+        if (size == cars.length) {
+            cars = Arrays.copyOf(cars, size * 2);
+            distanceSqr = Arrays.copyOf(distanceSqr, size * 2);
+            indexes = Arrays.copyOf(indexes, size * 2);
+        }
+
+        var i = size;
+        while (i > 0 && before(distSqr, index, i - 1)) {
+            cars[i] = cars[i - 1];
+            distanceSqr[i] = distanceSqr[i - 1];
+            indexes[i] = indexes[i - 1];
+            i--;
+        }
+        cars[i] = car;
+        distanceSqr[i] = distSqr;
+        indexes[i] = index;
+        size++;
+    }
+
+    private boolean before(double distSqr, int index, int i) {
+        return distSqr < distanceSqr[i] || distSqr == distanceSqr[i] && index < indexes[i];
+    }
+
+    /**
+     * @return The squared distance a new candidate must beat to be kept.
+     */
+    double limitSqr() {
+        return size == k && k > 0 ? distanceSqr[size - 1] : maxDistanceSqr;
+    }
+
+    double getDistanceSqr(int index) {
+        return distanceSqr[index];
+    }
+
+    @Override
+    public Car get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return cars[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
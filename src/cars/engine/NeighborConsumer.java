@@ -0,0 +1,15 @@
+package cars.engine;
+
+/**
+ * Receives the neighbors found by {@link World#forEachNeighbor(double, NeighborConsumer)}.
+ * <p>
+ * The squared distance is passed as a primitive, so visiting neighbors does not box.
+ */
+@FunctionalInterface
+public interface NeighborConsumer {
+    /**
+     * @param neighbor    A car within the query radius.
+     * @param distanceSqr Squared distance from the current car to the neighbor.
+     */
+    void accept(Car neighbor, double distanceSqr);
+}
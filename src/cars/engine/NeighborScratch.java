@@ -0,0 +1,38 @@
+package cars.engine;
+
+import java.util.Arrays;
+
+/**
+ * Per thread buffers used by neighbor and obstacle queries.
+ * <p>
+ * Steering runs on several worker threads, so queries can't share buffers through the
+ * {@link World}, the {@link SpatialGrid} or the {@link ObstacleTree}. Each thread gets its own,
+ * reused across queries.
+ */
+final class NeighborScratch {
+    private static final ThreadLocal<NeighborScratch> CURRENT = ThreadLocal.withInitial(NeighborScratch::new);
+
+    final NearestCars nearest = new NearestCars();
+    private int[] indexes = new int[16];
+    private int[] nodes = new int[16];
+
+    static NeighborScratch get() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @return The index buffer, grown to at least size entries, keeping its contents.
+     */
+    int[] indexes(int size) {
+        if (indexes.length < size) indexes = Arrays.copyOf(indexes, Math.max(size, indexes.length * 2));
+        return indexes;
+    }
+
+    /**
+     * @return The node stack of tree traversals, with room for at least size entries.
+     */
+    int[] nodes(int size) {
+        if (nodes.length < size) nodes = new int[Math.max(size, nodes.length * 2)];
+        return nodes;
+    }
+}
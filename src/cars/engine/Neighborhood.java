@@ -0,0 +1,131 @@
+package cars.engine;
+
+import static cars.engine.Vector2.vec2;
+
+/**
+ * Summary of the cars around the current car, computed in a single pass over its neighbors.
+ * <p>
+ * Holds everything the classic separation, alignment and cohesion behaviors need, so they
+ * don't have to walk the neighbor list three times:
+ * <ul>
+ *     <li>the neighbor count;</li>
+ *     <li>the centroid of their positions (cohesion);</li>
+ *     <li>their average velocity (alignment);</li>
+ *     <li>the sum of the offsets from each neighbor to the current car, divided by the squared
+ *     distance, so nearer neighbors push harder (separation);</li>
+ *     <li>the nearest neighbor.</li>
+ * </ul>
+ * A summary is owned by its {@link World} and is only valid during the current tick.
+ *
+ * @see World#getNeighborhood(double)
+ */
+public final class Neighborhood {
+    private double radius = -1;
+    private boolean valid = false;
+
+    private double x;
+    private double y;
+    private int count;
+    private double sumX;
+    private double sumY;
+    private double sumVx;
+    private double sumVy;
+    private double separationX;
+    private double separationY;
+    private Car nearest;
+    private double nearestDistanceSqr = Double.POSITIVE_INFINITY;
+
+    // Created once, so accumulating does not allocate
+    final NeighborConsumer accumulator = this::add;
+
+    Neighborhood() {}
+
+    boolean isFor(double radius) {
+        return valid && this.radius == radius;
+    }
+
+    void invalidate() {
+        valid = false;
+        nearest = null;
+    }
+
+    void begin(Car current, double radius) {
+        this.radius = radius;
+        this.x = current.getPositionX();
+        this.y = current.getPositionY();
+        count = 0;
+        sumX = sumY = 0;
+        sumVx = sumVy = 0;
+        separationX = separationY = 0;
+        nearest = null;
+        nearestDistanceSqr = Double.POSITIVE_INFINITY;
+        valid = true;
+    }
+
+    private void add(Car other, double distanceSqr) {
+        final var ox = other.getPositionX();
+        final var oy = other.getPositionY();
+        count++;
+        sumX += ox;
+        sumY += oy;
+        sumVx += other.getVelocityX();
+        sumVy += other.getVelocityY();
+        // Cars on top of each other have no direction to be pushed apart
+        if (distanceSqr > 0) {
+            separationX += (x - ox) / distanceSqr;
+            separationY += (y - oy) / distanceSqr;
+        }
+        if (distanceSqr < nearestDistanceSqr) {
+            nearest = other;
+            nearestDistanceSqr = distanceSqr;
+        }
+    }
+
+    public double getRadius() { return radius; }
+    public int getCount() { return count; }
+    public boolean isEmpty() { return count == 0; }
+
+    /**
+     * @return The centroid of the neighbor positions, or zero if there are no neighbors.
+     */
+    public Vector2 getCentroid() {
+        return getCentroid(vec2());
+    }
+
+    public Vector2 getCentroid(Vector2 out) {
+        return count == 0 ? out.set(0, 0) : out.set(sumX / count, sumY / count);
+    }
+
+    /**
+     * @return The average neighbor velocity, or zero if there are no neighbors.
+     */
+    public Vector2 getAverageVelocity() {
+        return getAverageVelocity(vec2());
+    }
+
+    public Vector2 getAverageVelocity(Vector2 out) {
+        return count == 0 ? out.set(0, 0) : out.set(sumVx / count, sumVy / count);
+    }
+
+    /**
+     * @return Sum of the offsets from each neighbor to the current car, divided by their squared
+     * distance. Points away from the crowd.
+     */
+    public Vector2 getSeparation() {
+        return getSeparation(vec2());
+    }
+
+    public Vector2 getSeparation(Vector2 out) {
+        return out.set(separationX, separationY);
+    }
+
+    /**
+     * @return The nearest neighbor, or null if there are no neighbors.
+     */
+    public Car getNearest() { return nearest; }
+
+    /**
+     * @return The distance to the nearest neighbor, or infinity if there are no neighbors.
+     */
+    public double getNearestDistance() { return Math.sqrt(nearestDistanceSqr); }
+}
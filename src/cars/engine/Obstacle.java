@@ -0,0 +1,293 @@
+package cars.engine;
+
+import java.awt.*;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+
+import static cars.engine.Vector2.vec2;
+
+/**
+ * A static obstacle: a circle, a wall segment or a polygon. Circles and polygons are solid,
+ * segments have no thickness.
+ * <p>
+ * Obstacles are created by {@code Setup.createObstacles()} and never move, so the engine indexes
+ * them once. Cars query them through {@link World#raycast(Vector2, Vector2, double)},
+ * {@link World#overlaps(Vector2, double)} and {@link World#nearestObstacle(Vector2, double)}.
+ */
+public abstract class Obstacle {
+    // Bounding box
+    final double minX;
+    final double minY;
+    final double maxX;
+    final double maxY;
+
+    private Obstacle(double minX, double minY, double maxX, double maxY) {
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    public static Obstacle circle(Vector2 center, double radius) {
+        if (!(radius > 0)) {
+            throw new IllegalArgumentException("radius must be greater than 0");
+        }
+        return new Circle(center.x, center.y, radius);
+    }
+
+    public static Obstacle segment(Vector2 from, Vector2 to) {
+        return new Segment(from.x, from.y, to.x, to.y);
+    }
+
+    /**
+     * @param vertices Vertices of a simple polygon, convex or not, in either order.
+     */
+    public static Obstacle polygon(Vector2... vertices) {
+        if (vertices.length < 3) {
+            throw new IllegalArgumentException("a polygon needs at least 3 vertices");
+        }
+        final var x = new double[vertices.length];
+        final var y = new double[vertices.length];
+        for (var i = 0; i < vertices.length; i++) {
+            x[i] = vertices[i].x;
+            y[i] = vertices[i].y;
+        }
+        return new Polygon(x, y);
+    }
+
+    public boolean contains(Vector2 point) {
+        return contains(point.x, point.y);
+    }
+
+    /**
+     * @return The distance from the point to this obstacle, 0 if the point is inside it.
+     */
+    public double distance(Vector2 point) {
+        return Math.sqrt(distanceSqr(point.x, point.y));
+    }
+
+    /**
+     * Finds the point of this obstacle closest to the given point: the point itself if it is
+     * inside the obstacle, or else a point of its outline.
+     *
+     * @return out
+     */
+    public Vector2 closestPoint(Vector2 point, Vector2 out) {
+        return closestPoint(point.x, point.y, out);
+    }
+
+    public Vector2 closestPoint(Vector2 point) {
+        return closestPoint(point, vec2());
+    }
+
+    abstract boolean contains(double x, double y);
+
+    abstract double distanceSqr(double x, double y);
+
+    abstract Vector2 closestPoint(double x, double y, Vector2 out);
+
+    /**
+     * Casts a ray against this obstacle. A ray starting inside a solid obstacle hits it at once.
+     *
+     * @param dx     Ray direction, normalized.
+     * @param normal Receives the surface normal, facing the ray, if there is a hit within maxDistance.
+     * @return The distance to the hit, or infinity if there is none within maxDistance.
+     */
+    abstract double raycast(double ox, double oy, double dx, double dy, double maxDistance, Vector2 normal);
+
+    abstract Shape toShape();
+
+    abstract boolean isSolid();
+
+    // ---- Shapes ----
+
+    private static final class Circle extends Obstacle {
+        private final double x;
+        private final double y;
+        private final double radius;
+
+        Circle(double x, double y, double radius) {
+            super(x - radius, y - radius, x + radius, y + radius);
+            this.x = x;
+            this.y = y;
+            this.radius = radius;
+        }
+
+        @Override
+        boolean contains(double px, double py) {
+            final var dx = px - x;
+            final var dy = py - y;
+            return dx * dx + dy * dy <= radius * radius;
+        }
+
+        @Override
+        double distanceSqr(double px, double py) {
+            final var distance = Math.hypot(px - x, py - y) - radius;
+            return distance <= 0 ? 0 : distance * distance;
+        }
+
+        @Override
+        Vector2 closestPoint(double px, double py, Vector2 out) {
+            final var dx = px - x;
+            final var dy = py - y;
+            final var length = Math.hypot(dx, dy);
+            if (length <= radius) return out.set(px, py);
+            return out.set(x + dx * radius / length, y + dy * radius / length);
+        }
+
+        @Override
+        double raycast(double ox, double oy, double dx, double dy, double maxDistance, Vector2 normal) {
+            final var fx = ox - x;
+            final var fy = oy - y;
+            final var c = fx * fx + fy * fy - radius * radius;
+            if (c <= 0) {
+                normal.set(-dx, -dy);
+                return 0;
+            }
+            final var b = fx * dx + fy * dy;
+            final var discriminant = b * b - c;
+            if (b > 0 || discriminant < 0) return Double.POSITIVE_INFINITY;
+            final var t = -b - Math.sqrt(discriminant);
+            if (t > maxDistance) return Double.POSITIVE_INFINITY;
+            normal.set((fx + dx * t) / radius, (fy + dy * t) / radius);
+            return t;
+        }
+
+        @Override
+        Shape toShape() { return new Ellipse2D.Double(x - radius, y - radius, 2 * radius, 2 * radius); }
+
+        @Override
+        boolean isSolid() { return true; }
+    }
+
+    private static final class Segment extends Obstacle {
+        private final double x0;
+        private final double y0;
+        private final double x1;
+        private final double y1;
+
+        Segment(double x0, double y0, double x1, double y1) {
+            super(Math.min(x0, x1), Math.min(y0, y1), Math.max(x0, x1), Math.max(y0, y1));
+            this.x0 = x0;
+            this.y0 = y0;
+            this.x1 = x1;
+            this.y1 = y1;
+        }
+
+        @Override
+        boolean contains(double x, double y) { return false; }
+
+        @Override
+        double distanceSqr(double x, double y) {
+            return Segments.distanceSqr(x, y, x0, y0, x1, y1);
+        }
+
+        @Override
+        Vector2 closestPoint(double x, double y, Vector2 out) {
+            return Segments.closestPoint(x, y, x0, y0, x1, y1, out);
+        }
+
+        @Override
+        double raycast(double ox, double oy, double dx, double dy, double maxDistance, Vector2 normal) {
+            return Segments.raycast(ox, oy, dx, dy, maxDistance, x0, y0, x1, y1, normal);
+        }
+
+        @Override
+        Shape toShape() { return new Line2D.Double(x0, y0, x1, y1); }
+
+        @Override
+        boolean isSolid() { return false; }
+    }
+
+    private static final class Polygon extends Obstacle {
+        private final double[] x;
+        private final double[] y;
+
+        Polygon(double[] x, double[] y) {
+            super(min(x), min(y), max(x), max(y));
+            this.x = x;
+            this.y = y;
+        }
+
+        // Even-odd crossing test
+        @Override
+        boolean contains(double px, double py) {
+            var inside = false;
+            for (int i = 0, j = x.length - 1; i < x.length; j = i++) {
+                if ((y[i] > py) != (y[j] > py) && px < (x[j] - x[i]) * (py - y[i]) / (y[j] - y[i]) + x[i]) {
+                    inside = !inside;
+                }
+            }
+            return inside;
+        }
+
+        @Override
+        double distanceSqr(double px, double py) {
+            if (contains(px, py)) return 0;
+            var best = Double.POSITIVE_INFINITY;
+            for (int i = 0, j = x.length - 1; i < x.length; j = i++) {
+                best = Math.min(best, Segments.distanceSqr(px, py, x[j], y[j], x[i], y[i]));
+            }
+            return best;
+        }
+
+        @Override
+        Vector2 closestPoint(double px, double py, Vector2 out) {
+            if (contains(px, py)) return out.set(px, py);
+            var best = Double.POSITIVE_INFINITY;
+            var bestEdge = 0;
+            for (int i = 0, j = x.length - 1; i < x.length; j = i++) {
+                final var distanceSqr = Segments.distanceSqr(px, py, x[j], y[j], x[i], y[i]);
+                if (distanceSqr < best) {
+                    best = distanceSqr;
+                    bestEdge = i;
+                }
+            }
+            final var j = bestEdge == 0 ? x.length - 1 : bestEdge - 1;
+            return Segments.closestPoint(px, py, x[j], y[j], x[bestEdge], y[bestEdge], out);
+        }
+
+        @Override
+        double raycast(double ox, double oy, double dx, double dy, double maxDistance, Vector2 normal) {
+            if (contains(ox, oy)) {
+                normal.set(-dx, -dy);
+                return 0;
+            }
+            var best = Double.POSITIVE_INFINITY;
+            var limit = maxDistance;
+            for (int i = 0, j = x.length - 1; i < x.length; j = i++) {
+                final var t = Segments.raycast(ox, oy, dx, dy, limit, x[j], y[j], x[i], y[i], normal);
+                if (t < best) {
+                    best = t;
+                    limit = t;
+                }
+            }
+            return best;
+        }
+
+        @Override
+        Shape toShape() {
+            final var path = new Path2D.Double();
+            path.moveTo(x[0], y[0]);
+            for (var i = 1; i < x.length; i++) path.lineTo(x[i], y[i]);
+            path.closePath();
+            return path;
+        }
+
+        @Override
+        boolean isSolid() { return true; }
+
+        private static double min(double[] values) {
+            var min = values[0];
+            for (final var value : values) min = Math.min(min, value);
+            return min;
+        }
+
+        private static double max(double[] values) {
+            var max = values[0];
+            for (final var value : values) max = Math.max(max, value);
+            return max;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package cars.engine;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Bounding volume hierarchy over the static obstacles, built once and read-only afterwards, so
+ * it can be queried from many threads at once.
+ * <p>
+ * Nodes are stored in flat arrays: each one holds the bounding box of its obstacles, and either
+ * a run of obstacle indexes (a leaf) or its two children, stored next to each other. Obstacles
+ * are split at the median of their centers, along the longest axis, so the tree stays balanced
+ * and queries visit O(log n) nodes, plus the ones they actually touch. Traversals are iterative,
+ * over a per thread stack, so queries do not allocate.
+ */
+final class ObstacleTree {
+    private static final int LEAF_SIZE = 4;
+
+    private final List<Obstacle> obstacles;
+    private final int[] items;      // obstacle indexes, leaves point into runs of it
+    private final double[] minX;
+    private final double[] minY;
+    private final double[] maxX;
+    private final double[] maxY;
+    private final int[] first;      // leaves: first item; inner nodes: left child, the right one follows
+    private final int[] count;      // leaves: item count; inner nodes: 0
+    private int nodes = 0;
+    private int depth = 0;
+
+    ObstacleTree(List<Obstacle> obstacles) {
+        this.obstacles = List.copyOf(obstacles);
+        final var n = this.obstacles.size();
+        final var capacity = Math.max(1, 2 * n);
+        items = new int[n];
+        for (var i = 0; i < n; i++) items[i] = i;
+        minX = new double[capacity];
+        minY = new double[capacity];
+        maxX = new double[capacity];
+        maxY = new double[capacity];
+        first = new int[capacity];
+        count = new int[capacity];
+        if (n > 0) build(alloc(), 0, n, 1);
+    }
+
+    List<Obstacle> getObstacles() { return obstacles; }
+
+    private int alloc() {
+        return nodes++;
+    }
+
+    private void build(int node, int start, int end, int level) {
+        depth = Math.max(depth, level);
+        minX[node] = minY[node] = Double.POSITIVE_INFINITY;
+        maxX[node] = maxY[node] = Double.NEGATIVE_INFINITY;
+        for (var k = start; k < end; k++) {
+            final var obstacle = obstacles.get(items[k]);
+            minX[node] = Math.min(minX[node], obstacle.minX);
+            minY[node] = Math.min(minY[node], obstacle.minY);
+            maxX[node] = Math.max(maxX[node], obstacle.maxX);
+            maxY[node] = Math.max(maxY[node], obstacle.maxY);
+        }
+        if (end - start <= LEAF_SIZE) {
+            first[node] = start;
+            count[node] = end - start;
+            return;
+        }
+
+        // Built once, sorting the boxed run is fine
+        final var alongX = maxX[node] - minX[node] >= maxY[node] - minY[node];
+        final Comparator<Integer> byCenter = alongX
+            ? Comparator.comparingDouble(i -> obstacles.get(i).minX + obstacles.get(i).maxX)
+            : Comparator.comparingDouble(i -> obstacles.get(i).minY + obstacles.get(i).maxY);
+        final var run = Arrays.stream(items, start, end).boxed().sorted(byCenter).mapToInt(Integer::intValue).toArray();
+        System.arraycopy(run, 0, items, start, run.length);
+
+        final var middle = (start + end) >>> 1;
+        final var left = alloc();
+        final var right = alloc();
+        first[node] = left;
+        count[node] = 0;
+        build(left, start, middle, level + 1);
+        build(right, middle, end, level + 1);
+    }
+
+    /**
+     * Finds the first obstacle hit by a ray.
+     *
+     * @param dx Ray direction, normalized.
+     * @return The index of the obstacle hit, with its distance and normal in hit, or -1.
+     */
+    int raycast(double ox, double oy, double dx, double dy, double maxDistance, RayHit hit) {
+        if (nodes == 0) return -1;
+        final var invX = 1.0 / dx;
+        final var invY = 1.0 / dy;
+        final var stack = NeighborScratch.get().nodes(2 * depth);
+        var top = 0;
+        stack[top++] = 0;
+
+        var best = maxDistance;
+        var found = -1;
+        final var normal = hit.normal();
+        while (top > 0) {
+            final var node = stack[--top];
+            if (enter(node, ox, oy, invX, invY, best) > best) continue;
+            if (count[node] > 0) {
+                for (var k = first[node]; k < first[node] + count[node]; k++) {
+                    final var t = obstacles.get(items[k]).raycast(ox, oy, dx, dy, best, normal);
+                    // Obstacles only write the normal on a hit within best, so it is the one of the last hit kept
+                    if (t <= best && t != Double.POSITIVE_INFINITY) {
+                        best = t;
+                        found = items[k];
+                    }
+                }
+                continue;
+            }
+            // Nearer child on top
+            final var left = first[node];
+            final var right = left + 1;
+            final var leftEnter = enter(left, ox, oy, invX, invY, best);
+            final var rightEnter = enter(right, ox, oy, invX, invY, best);
+            if (leftEnter <= rightEnter) {
+                if (rightEnter <= best) stack[top++] = right;
+                if (leftEnter <= best) stack[top++] = left;
+            } else {
+                if (leftEnter <= best) stack[top++] = left;
+                if (rightEnter <= best) stack[top++] = right;
+            }
+        }
+        if (found != -1) hit.set(obstacles.get(found), best, ox + dx * best, oy + dy * best);
+        return found;
+    }
+
+    // Distance along the ray to the box of the node, or infinity if the ray misses it within maxDistance
+    private double enter(int node, double ox, double oy, double invX, double invY, double maxDistance) {
+        var near = 0.0;
+        var far = maxDistance;
+        if (Double.isInfinite(invX)) {
+            if (ox < minX[node] || ox > maxX[node]) return Double.POSITIVE_INFINITY;
+        } else {
+            final var a = (minX[node] - ox) * invX;
+            final var b = (maxX[node] - ox) * invX;
+            near = Math.max(near, Math.min(a, b));
+            far = Math.min(far, Math.max(a, b));
+        }
+        if (Double.isInfinite(invY)) {
+            if (oy < minY[node] || oy > maxY[node]) return Double.POSITIVE_INFINITY;
+        } else {
+            final var a = (minY[node] - oy) * invY;
+            final var b = (maxY[node] - oy) * invY;
+            near = Math.max(near, Math.min(a, b));
+            far = Math.min(far, Math.max(a, b));
+        }
+        return near <= far ? near : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @return True if any obstacle is within radius of the point.
+     */
+    boolean overlaps(double x, double y, double radius) {
+        if (nodes == 0 || radius < 0) return false;
+        final var radiusSqr = radius * radius;
+        final var stack = NeighborScratch.get().nodes(2 * depth);
+        var top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            final var node = stack[--top];
+            if (boxDistanceSqr(node, x, y) > radiusSqr) continue;
+            if (count[node] == 0) {
+                stack[top++] = first[node];
+                stack[top++] = first[node] + 1;
+                continue;
+            }
+            for (var k = first[node]; k < first[node] + count[node]; k++) {
+                if (obstacles.get(items[k]).distanceSqr(x, y) <= radiusSqr) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the obstacle nearest to the point, within radius. Ties go to the first obstacle.
+     *
+     * @return The index of the obstacle, or -1 if there is none within radius.
+     */
+    int nearest(double x, double y, double radius) {
+        if (nodes == 0 || radius < 0) return -1;
+        final var stack = NeighborScratch.get().nodes(2 * depth);
+        var top = 0;
+        stack[top++] = 0;
+
+        var best = radius * radius;
+        var found = -1;
+        while (top > 0) {
+            final var node = stack[--top];
+            if (boxDistanceSqr(node, x, y) > best) continue;
+            if (count[node] > 0) {
+                for (var k = first[node]; k < first[node] + count[node]; k++) {
+                    final var distanceSqr = obstacles.get(items[k]).distanceSqr(x, y);
+                    if (distanceSqr < best || distanceSqr == best && (found == -1 || items[k] < found)) {
+                        best = distanceSqr;
+                        found = items[k];
+                    }
+                }
+                continue;
+            }
+            // Nearer child on top
+            final var left = first[node];
+            final var right = left + 1;
+            if (boxDistanceSqr(left, x, y) <= boxDistanceSqr(right, x, y)) {
+                stack[top++] = right;
+                stack[top++] = left;
+            } else {
+                stack[top++] = left;
+                stack[top++] = right;
+            }
+        }
+        return found;
+    }
+
+    private double boxDistanceSqr(int node, double x, double y) {
+        final var dx = Math.max(Math.max(minX[node] - x, x - maxX[node]), 0);
+        final var dy = Math.max(Math.max(minY[node] - y, y - maxY[node]), 0);
+        return dx * dx + dy * dy;
+    }
+}
@@ -0,0 +1,317 @@
+package cars.engine;
+
+import java.awt.geom.Path2D;
+import java.util.Arrays;
+import java.util.List;
+
+import static cars.engine.Vector2.vec2;
+
+/**
+ * A polyline for cars to follow, open or looped. Immutable, so it can be shared by all cars.
+ * <p>
+ * Positions on the path are given by their distance along it, from 0 at the first point to
+ * {@link #getLength()}. Lookups are fast even for paths of thousands of points:
+ * <ul>
+ *     <li>{@link #pointAt(double, Vector2)} searches the precomputed cumulative lengths, in
+ *     O(log n);</li>
+ *     <li>{@link #closestPoint(Vector2, Vector2)} searches a uniform grid of segments in rings
+ *     around the position, so it only looks at the segments near it;</li>
+ *     <li>a {@link PathCursor} remembers the segment a car was on, and usually only looks at it
+ *     and its neighbors.</li>
+ * </ul>
+ * Distances along a looped path wrap around; on an open path they are clamped to its ends.
+ */
+public final class Path {
+    private static final int MAX_CELLS_PER_AXIS = 256;
+
+    private final double[] x;
+    private final double[] y;
+    private final double[] lengths;     // distance along the path of each point, and of the closing point if looped
+    private final int segmentCount;
+    private final boolean looped;
+
+    // Segment grid, cell c holds segments[cellStart[c]..cellStart[c + 1])
+    private final double minX;
+    private final double minY;
+    private final double cellSize;
+    private final int cols;
+    private final int rows;
+    private final int[] cellStart;
+    private final int[] segments;
+
+    private Path(List<Vector2> points, boolean looped) {
+        if (points.size() < 2) {
+            throw new IllegalArgumentException("a path needs at least 2 points");
+        }
+        final var n = points.size();
+        this.looped = looped;
+        this.segmentCount = looped ? n : n - 1;
+        this.x = new double[n];
+        this.y = new double[n];
+        for (var i = 0; i < n; i++) {
+            x[i] = points.get(i).x;
+            y[i] = points.get(i).y;
+        }
+        this.lengths = new double[segmentCount + 1];
+        for (var s = 0; s < segmentCount; s++) {
+            final var e = end(s);
+            lengths[s + 1] = lengths[s] + Math.hypot(x[e] - x[s], y[e] - y[s]);
+        }
+
+        // About two segments per cell, along the path
+        var minX = x[0];
+        var minY = y[0];
+        var maxX = x[0];
+        var maxY = y[0];
+        for (var i = 1; i < n; i++) {
+            minX = Math.min(minX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxX = Math.max(maxX, x[i]);
+            maxY = Math.max(maxY, y[i]);
+        }
+        final var spanX = Math.max(maxX - minX, 1);
+        final var spanY = Math.max(maxY - minY, 1);
+        final var cellSize = Math.max(2 * getLength() / segmentCount, Math.max(spanX, spanY) / MAX_CELLS_PER_AXIS);
+        this.minX = minX;
+        this.minY = minY;
+        this.cols = Math.clamp((long) Math.ceil(spanX / cellSize), 1, MAX_CELLS_PER_AXIS);
+        this.rows = Math.clamp((long) Math.ceil(spanY / cellSize), 1, MAX_CELLS_PER_AXIS);
+        this.cellSize = Math.max(cellSize, Math.max(spanX / cols, spanY / rows));
+
+        // Counting sort of the segments into every cell their bounding box touches
+        this.cellStart = new int[cols * rows + 1];
+        for (var s = 0; s < segmentCount; s++) {
+            forEachCell(s, cell -> cellStart[cell + 1]++);
+        }
+        for (var c = 0; c < cols * rows; c++) cellStart[c + 1] += cellStart[c];
+        this.segments = new int[cellStart[cols * rows]];
+        final var fill = Arrays.copyOf(cellStart, cols * rows);
+        for (var s = 0; s < segmentCount; s++) {
+            final var segment = s;
+            forEachCell(s, cell -> segments[fill[cell]++] = segment);
+        }
+    }
+
+    public static Path open(Vector2... points) {
+        return new Path(List.of(points), false);
+    }
+
+    public static Path open(List<Vector2> points) {
+        return new Path(points, false);
+    }
+
+    /**
+     * Creates a closed path, whose last point joins back to the first.
+     */
+    public static Path looped(Vector2... points) {
+        return new Path(List.of(points), true);
+    }
+
+    public static Path looped(List<Vector2> points) {
+        return new Path(points, true);
+    }
+
+    private interface CellAction {
+        void apply(int cell);
+    }
+
+    private void forEachCell(int segment, CellAction action) {
+        final var e = end(segment);
+        final var c0 = column(Math.min(x[segment], x[e]));
+        final var c1 = column(Math.max(x[segment], x[e]));
+        final var r0 = row(Math.min(y[segment], y[e]));
+        final var r1 = row(Math.max(y[segment], y[e]));
+        for (var r = r0; r <= r1; r++) {
+            for (var c = c0; c <= c1; c++) action.apply(r * cols + c);
+        }
+    }
+
+    private int column(double px) {
+        return Math.clamp((long) Math.floor((px - minX) / cellSize), 0, cols - 1);
+    }
+
+    private int row(double py) {
+        return Math.clamp((long) Math.floor((py - minY) / cellSize), 0, rows - 1);
+    }
+
+    // Index of the point where a segment ends
+    private int end(int segment) {
+        return segment + 1 == x.length ? 0 : segment + 1;
+    }
+
+    public boolean isLooped() { return looped; }
+    public double getLength() { return lengths[segmentCount]; }
+    public int getPointCount() { return x.length; }
+    public int getSegmentCount() { return segmentCount; }
+
+    public Vector2 getPoint(int index, Vector2 out) { return out.set(x[index], y[index]); }
+    public Vector2 getPoint(int index) { return vec2(x[index], y[index]); }
+
+    /**
+     * @return The distance along the path, wrapped around a looped path or clamped to the ends
+     * of an open one.
+     */
+    public double wrap(double distance) {
+        final var length = getLength();
+        if (!looped || length == 0) return Math.clamp(distance, 0, length);
+        final var wrapped = distance % length;
+        return wrapped < 0 ? wrapped + length : wrapped;
+    }
+
+    /**
+     * @return The segment at the given distance along the path, already wrapped.
+     */
+    int segmentAt(double distance) {
+        var index = Arrays.binarySearch(lengths, distance);
+        if (index < 0) index = -index - 2;
+        return Math.clamp(index, 0, segmentCount - 1);
+    }
+
+    /**
+     * Finds the point at the given distance along the path.
+     *
+     * @return out
+     */
+    public Vector2 pointAt(double distance, Vector2 out) {
+        final var along = wrap(distance);
+        final var s = segmentAt(along);
+        final var e = end(s);
+        final var length = lengths[s + 1] - lengths[s];
+        final var t = length == 0 ? 0 : (along - lengths[s]) / length;
+        return out.set(x[s] + (x[e] - x[s]) * t, y[s] + (y[e] - y[s]) * t);
+    }
+
+    public Vector2 pointAt(double distance) {
+        return pointAt(distance, vec2());
+    }
+
+    /**
+     * Finds the direction of the path at the given distance along it.
+     *
+     * @return out, a unit vector, or zero if the segment there has no length.
+     */
+    public Vector2 directionAt(double distance, Vector2 out) {
+        final var s = segmentAt(wrap(distance));
+        final var e = end(s);
+        return out.set(x[e] - x[s], y[e] - y[s]).normalize();
+    }
+
+    /**
+     * Finds the point of the path closest to position.
+     *
+     * @param out Receives the closest point.
+     * @return Its distance along the path.
+     */
+    public double closestPoint(Vector2 position, Vector2 out) {
+        final var segment = nearestSegment(position.x, position.y);
+        return project(segment, position.x, position.y, out);
+    }
+
+    /**
+     * @return The distance along the path of the point of the path closest to position.
+     */
+    public double distanceAlong(Vector2 position) {
+        final var segment = nearestSegment(position.x, position.y);
+        return lengths[segment] + (lengths[segment + 1] - lengths[segment]) * parameter(segment, position.x, position.y);
+    }
+
+    /**
+     * @return The distance from position to the path.
+     */
+    public double distanceTo(Vector2 position) {
+        return Math.sqrt(distanceSqr(nearestSegment(position.x, position.y), position.x, position.y));
+    }
+
+    public PathCursor cursor() {
+        return new PathCursor(this, PathCursor.DEFAULT_REJOIN_DISTANCE);
+    }
+
+    /**
+     * @param rejoinDistance How far the car may get from the segments around its last one before
+     *                       the cursor searches the whole path again.
+     */
+    public PathCursor cursor(double rejoinDistance) {
+        return new PathCursor(this, rejoinDistance);
+    }
+
+    // ---- Segment queries, used by cursors too ----
+
+    double parameter(int segment, double px, double py) {
+        final var e = end(segment);
+        return Segments.parameter(px, py, x[segment], y[segment], x[e], y[e]);
+    }
+
+    double distanceSqr(int segment, double px, double py) {
+        final var e = end(segment);
+        return Segments.distanceSqr(px, py, x[segment], y[segment], x[e], y[e]);
+    }
+
+    /**
+     * Writes in out the point of the segment closest to the position.
+     *
+     * @return Its distance along the path.
+     */
+    double project(int segment, double px, double py, Vector2 out) {
+        final var t = parameter(segment, px, py);
+        final var e = end(segment);
+        out.set(x[segment] + (x[e] - x[segment]) * t, y[segment] + (y[e] - y[segment]) * t);
+        return lengths[segment] + (lengths[segment + 1] - lengths[segment]) * t;
+    }
+
+    /**
+     * @return The segment nearest to the position. Ties go to the first segment.
+     */
+    int nearestSegment(double px, double py) {
+        final var c = column(px);
+        final var r = row(py);
+        var best = -1;
+        var bestDistanceSqr = Double.POSITIVE_INFINITY;
+        final var rings = Math.max(cols, rows);
+        for (var ring = 0; ring <= rings; ring++) {
+            // Anything in this ring, or farther, is at least ring - 1 cells away
+            final var reach = (ring - 1) * cellSize;
+            if (ring > 1 && reach * reach > bestDistanceSqr) break;
+            for (var row = r - ring; row <= r + ring; row++) {
+                if (row < 0 || row >= rows) continue;
+                final var edge = row == r - ring || row == r + ring;
+                for (var col = c - ring; col <= c + ring; col += edge ? 1 : 2 * Math.max(ring, 1)) {
+                    if (col < 0 || col >= cols) continue;
+                    final var cell = row * cols + col;
+                    for (var k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                        final var segment = segments[k];
+                        final var distanceSqr = distanceSqr(segment, px, py);
+                        if (distanceSqr < bestDistanceSqr || distanceSqr == bestDistanceSqr && segment < best) {
+                            bestDistanceSqr = distanceSqr;
+                            best = segment;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return The segment after the given one, or -1 at the end of an open path.
+     */
+    int next(int segment) {
+        if (segment + 1 < segmentCount) return segment + 1;
+        return looped ? 0 : -1;
+    }
+
+    /**
+     * @return The segment before the given one, or -1 at the start of an open path.
+     */
+    int previous(int segment) {
+        if (segment > 0) return segment - 1;
+        return looped ? segmentCount - 1 : -1;
+    }
+
+    Path2D toShape() {
+        final var path = new Path2D.Double();
+        path.moveTo(x[0], y[0]);
+        for (var i = 1; i < x.length; i++) path.lineTo(x[i], y[i]);
+        if (looped) path.closePath();
+        return path;
+    }
+}
@@ -0,0 +1,124 @@
+package cars.engine;
+
+/**
+ * Tracks where a car is along a {@link Path}, for path following.
+ * <p>
+ * Each update starts from the segment found last time and walks along the path, forwards and
+ * backwards, while the segments get closer to the car. Cars move a little each tick, so this
+ * usually looks at two or three segments, whatever the size of the path, and a car on a path
+ * that crosses itself keeps to the branch it is on. Only when the car gets farther than the
+ * rejoin distance from that stretch, or on the first update, the whole path is searched.
+ * <p>
+ * A cursor belongs to one car: it is not thread safe, but different cars can follow the same
+ * path with cursors of their own.
+ * <pre>{@code
+ * final var cursor = path.cursor();   // a field of the car
+ * ...
+ * cursor.update(getPosition());
+ * final var target = cursor.ahead(lookAhead, vec2());
+ * }</pre>
+ */
+public final class PathCursor {
+    public static final double DEFAULT_REJOIN_DISTANCE = 100;
+
+    private final Path path;
+    private final double rejoinDistanceSqr;
+
+    private int segment = -1;
+    private double distance;
+    private double distanceSqrToPath;
+    private final Vector2 point = new Vector2();
+
+    PathCursor(Path path, double rejoinDistance) {
+        if (!(rejoinDistance >= 0)) {
+            throw new IllegalArgumentException("rejoinDistance must not be negative");
+        }
+        this.path = path;
+        this.rejoinDistanceSqr = rejoinDistance * rejoinDistance;
+    }
+
+    /**
+     * Moves the cursor to the point of the path closest to position.
+     *
+     * @return this
+     */
+    public PathCursor update(Vector2 position) {
+        final var px = position.x;
+        final var py = position.y;
+        if (segment != -1) {
+            var best = segment;
+            var bestDistanceSqr = path.distanceSqr(segment, px, py);
+            // A looped path is walked at most once around
+            final var count = path.getSegmentCount();
+            var s = path.next(best);
+            for (var steps = 0; s != -1 && steps < count; steps++, s = path.next(s)) {
+                final var distanceSqr = path.distanceSqr(s, px, py);
+                if (distanceSqr >= bestDistanceSqr) break;
+                best = s;
+                bestDistanceSqr = distanceSqr;
+            }
+            if (best == segment) {
+                s = path.previous(best);
+                for (var steps = 0; s != -1 && steps < count; steps++, s = path.previous(s)) {
+                    final var distanceSqr = path.distanceSqr(s, px, py);
+                    if (distanceSqr >= bestDistanceSqr) break;
+                    best = s;
+                    bestDistanceSqr = distanceSqr;
+                }
+            }
+            if (bestDistanceSqr <= rejoinDistanceSqr) {
+                set(best, bestDistanceSqr, px, py);
+                return this;
+            }
+        }
+
+        final var nearest = path.nearestSegment(px, py);
+        set(nearest, path.distanceSqr(nearest, px, py), px, py);
+        return this;
+    }
+
+    private void set(int segment, double distanceSqr, double px, double py) {
+        this.segment = segment;
+        this.distanceSqrToPath = distanceSqr;
+        this.distance = path.project(segment, px, py, point);
+    }
+
+    /**
+     * Forgets the last segment, so the next update searches the whole path.
+     */
+    public void reset() {
+        segment = -1;
+    }
+
+    public Path getPath() { return path; }
+
+    /**
+     * @return The segment the car is on, from 0, or -1 before the first update.
+     */
+    public int getSegment() { return segment; }
+
+    /**
+     * @return The distance along the path of the point closest to the car.
+     */
+    public double getDistance() { return distance; }
+
+    /**
+     * @return The distance from the car to the path.
+     */
+    public double getDistanceToPath() { return Math.sqrt(distanceSqrToPath); }
+
+    /**
+     * @return out, set to the point of the path closest to the car.
+     */
+    public Vector2 getPoint(Vector2 out) { return out.set(point); }
+
+    /**
+     * Finds the point further along the path, the usual target of path following.
+     *
+     * @param lookAhead Distance along the path, may be negative to look behind.
+     * @return out
+     */
+    public Vector2 ahead(double lookAhead, Vector2 out) {
+        return path.pointAt(distance + lookAhead, out);
+    }
+}
@@ -0,0 +1,42 @@
+package cars.engine;
+
+import static cars.engine.Vector2.vec2;
+
+/**
+ * Where a ray cast by {@link World#raycast(Vector2, Vector2, double)} hit an obstacle.
+ * <p>
+ * A hit may be reused, see {@link World#raycast(Vector2, Vector2, double, RayHit)}.
+ */
+public final class RayHit {
+    private Obstacle obstacle;
+    private double distance;
+    private final Vector2 point = vec2();
+    private final Vector2 normal = vec2();
+
+    public RayHit() {}
+
+    void set(Obstacle obstacle, double distance, double x, double y) {
+        this.obstacle = obstacle;
+        this.distance = distance;
+        this.point.set(x, y);
+    }
+
+    // Written by the obstacles while casting
+    Vector2 normal() { return normal; }
+
+    public Obstacle getObstacle() { return obstacle; }
+
+    /**
+     * @return The distance from the ray origin to the hit point.
+     */
+    public double getDistance() { return distance; }
+
+    public Vector2 getPoint() { return point.clone(); }
+    public Vector2 getPoint(Vector2 out) { return out.set(point); }
+
+    /**
+     * @return The unit normal of the obstacle surface at the hit point, facing the ray origin.
+     */
+    public Vector2 getNormal() { return normal.clone(); }
+    public Vector2 getNormal(Vector2 out) { return out.set(normal); }
+}
@@ -0,0 +1,218 @@
+package cars.engine;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Records a {@link Simulation} run into an append-only binary file, for {@link Replayer}.
+ * <p>
+ * Each recorded tick stores its time step, the input (mouse and click positions) and the state
+ * of every car: position, velocity and last steering force. Every few ticks the state is stored
+ * in full, as a keyframe. In between, positions are stored as float deltas from the previous
+ * tick, and velocities and forces as floats, which halves the size of a record. Deltas are taken
+ * from the position the replayer will rebuild, so rounding errors never pile up.
+ * <p>
+ * The file is written through memory mapped chunks, so recording costs about as much as copying
+ * the state. Records never straddle two chunks. The header keeps the end of the last complete
+ * record, so a run that was not closed can still be replayed; closing it appends the keyframe
+ * index, which the replayer otherwise rebuilds with a scan.
+ * <p>
+ * A recorder is used by the thread that steps the simulation; close() may come from another one.
+ */
+public final class Recorder implements AutoCloseable {
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 60;
+
+    static final int MAGIC = 0x4A435253;            // "JCRS"
+    static final int INDEX_MAGIC = 0x4A435249;      // "JCRI"
+    static final int VERSION = 1;
+    static final long CHUNK_SIZE = 64L << 20;
+
+    // Header layout, followed by the RGB color of each car
+    static final int HEADER_CAR_COUNT = 8;
+    static final int HEADER_KEYFRAME_INTERVAL = 12;
+    static final int HEADER_END = 16;               // end of the last complete record
+    static final int HEADER_FRAMES = 24;            // number of recorded ticks
+    static final int HEADER_INDEX = 32;             // position of the keyframe index, 0 until closed
+    static final int HEADER_SIZE = 40;
+
+    // Record types
+    static final byte PADDING = 0;                  // rest of the chunk is unused
+    static final byte KEYFRAME = 1;
+    static final byte DELTA = 2;
+
+    // type, tick, time, dt, width, height, input flags, mouse and click positions
+    static final int RECORD_HEADER_SIZE = 1 + 8 + 8 + 8 + 8 + 8 + 1 + 4 * 8;
+    static final byte HAS_MOUSE = 1;
+    static final byte HAS_CLICK = 2;
+
+    private final Simulation simulation;
+    private final int keyframeInterval;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final long dataStart;
+
+    private MappedByteBuffer chunk;
+    private long chunkStart = 0;
+    private long position;
+    private long frames = 0;
+    private long[] keyframes = new long[64];
+    private boolean closed = false;
+
+    // Positions as the replayer rebuilds them from the deltas
+    private final double[] lastX;
+    private final double[] lastY;
+    private final Vector2 mouse = new Vector2();
+    private final Vector2 click = new Vector2();
+
+    public Recorder(Path file, Simulation simulation) throws IOException {
+        this(file, simulation, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * Creates, or overwrites, the recording file.
+     *
+     * @param keyframeInterval Ticks between keyframes. Seeking reads up to this many records.
+     */
+    public Recorder(Path file, Simulation simulation, int keyframeInterval) throws IOException {
+        if (keyframeInterval < 1) {
+            throw new IllegalArgumentException("keyframeInterval must be greater than 0");
+        }
+        final var count = simulation.getCars().size();
+        dataStart = HEADER_SIZE + 4L * count;
+        if (dataStart + recordSize(KEYFRAME, count) > CHUNK_SIZE) {
+            throw new IllegalArgumentException("too many cars to record: " + count);
+        }
+
+        this.simulation = simulation;
+        this.keyframeInterval = keyframeInterval;
+        this.lastX = new double[count];
+        this.lastY = new double[count];
+        this.channel = FileChannel.open(file, CREATE, TRUNCATE_EXISTING, READ, WRITE);
+        this.chunk = channel.map(FileChannel.MapMode.READ_WRITE, 0, CHUNK_SIZE);
+        this.header = chunk;
+
+        header.putInt(0, MAGIC);
+        header.putInt(4, VERSION);
+        header.putInt(HEADER_CAR_COUNT, count);
+        header.putInt(HEADER_KEYFRAME_INTERVAL, keyframeInterval);
+        header.putLong(HEADER_INDEX, 0);
+        final var cars = simulation.getCars();
+        for (var i = 0; i < count; i++) {
+            header.putInt(HEADER_SIZE + 4 * i, cars.get(i).getColor().getRGB());
+        }
+        position = dataStart;
+        header.putLong(HEADER_END, position);
+        header.putLong(HEADER_FRAMES, 0);
+    }
+
+    static int recordSize(byte type, int carCount) {
+        return RECORD_HEADER_SIZE + carCount * (type == KEYFRAME ? 6 * 8 : 6 * 4);
+    }
+
+    /**
+     * Appends the current state of the simulation. Call it after every step.
+     * Does nothing once the recorder is closed.
+     */
+    public synchronized void record() throws IOException {
+        if (closed) return;
+        final var store = simulation.getStore();
+        final var count = lastX.length;
+        final var keyframe = frames % keyframeInterval == 0;
+        final var type = keyframe ? KEYFRAME : DELTA;
+        reserve(recordSize(type, count));
+        if (keyframe) {
+            if (frames / keyframeInterval == keyframes.length) keyframes = Arrays.copyOf(keyframes, keyframes.length * 2);
+            keyframes[(int) (frames / keyframeInterval)] = position;
+        }
+
+        final var hasMouse = simulation.getMousePos(mouse) != null;
+        final var hasClick = simulation.getClickPos(click) != null;
+        chunk.position((int) (position - chunkStart));
+        chunk.put(type)
+            .putLong(simulation.getTicks())
+            .putDouble(simulation.getTime())
+            .putDouble(simulation.getDt())
+            .putDouble(simulation.getWidth())
+            .putDouble(simulation.getHeight())
+            .put((byte) ((hasMouse ? HAS_MOUSE : 0) | (hasClick ? HAS_CLICK : 0)))
+            .putDouble(hasMouse ? mouse.x : 0)
+            .putDouble(hasMouse ? mouse.y : 0)
+            .putDouble(hasClick ? click.x : 0)
+            .putDouble(hasClick ? click.y : 0);
+
+        for (var i = 0; i < count; i++) {
+            if (keyframe) {
+                lastX[i] = store.px[i];
+                lastY[i] = store.py[i];
+                chunk.putDouble(store.px[i]).putDouble(store.py[i])
+                    .putDouble(store.vx[i]).putDouble(store.vy[i])
+                    .putDouble(store.fx[i]).putDouble(store.fy[i]);
+            } else {
+                final var dx = (float) (store.px[i] - lastX[i]);
+                final var dy = (float) (store.py[i] - lastY[i]);
+                lastX[i] += dx;
+                lastY[i] += dy;
+                chunk.putFloat(dx).putFloat(dy)
+                    .putFloat((float) store.vx[i]).putFloat((float) store.vy[i])
+                    .putFloat((float) store.fx[i]).putFloat((float) store.fy[i]);
+            }
+        }
+
+        position += recordSize(type, count);
+        frames++;
+        // End first, so the frame count never covers an incomplete record
+        header.putLong(HEADER_END, position);
+        header.putLong(HEADER_FRAMES, frames);
+    }
+
+    public synchronized long getFrames() { return frames; }
+
+    /**
+     * Makes room for size bytes in the current chunk, or moves on to the next one.
+     */
+    private void reserve(long size) throws IOException {
+        final var chunkEnd = chunkStart + CHUNK_SIZE;
+        if (position + size <= chunkEnd) return;
+        if (position < chunkEnd) chunk.put((int) (position - chunkStart), PADDING);
+        chunkStart = chunkEnd;
+        position = chunkEnd;
+        chunk = channel.map(FileChannel.MapMode.READ_WRITE, chunkStart, CHUNK_SIZE);
+    }
+
+    /**
+     * Appends the keyframe index and closes the file.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            final var keyframeCount = (int) ((frames + keyframeInterval - 1) / keyframeInterval);
+            reserve(8 + 8L * keyframeCount);
+            final var indexPosition = position;
+            chunk.position((int) (position - chunkStart));
+            chunk.putInt(INDEX_MAGIC).putInt(keyframeCount);
+            for (var k = 0; k < keyframeCount; k++) chunk.putLong(keyframes[k]);
+            position += 8 + 8L * keyframeCount;
+
+            header.putLong(HEADER_INDEX, indexPosition);
+            header.putLong(HEADER_END, position);
+            chunk.force();
+            header.force();
+            chunk = null;
+            try {
+                // Drop the unused tail of the last chunk. Some systems refuse to truncate a
+                // mapped file, the header still tells where the data ends.
+                channel.truncate(position);
+            } catch (IOException ignored) {
+            }
+        } finally {
+            channel.close();
+        }
+    }
+}
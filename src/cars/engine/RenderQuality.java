@@ -0,0 +1,110 @@
+package cars.engine;
+
+import java.awt.*;
+
+/**
+ * Render quality governor.
+ * <p>
+ * Measures the frame time and steps the rendering hints down when the frame budget is blown,
+ * and back up when there is time to spare. It also decides when cars are drawn with a low level
+ * of detail: above a given car count, or when the zoom makes them too small to see the model.
+ */
+final class RenderQuality {
+    enum Level { HIGH, MEDIUM, LOW }
+
+    // Smoothing factor of the frame time moving average
+    private static final double SMOOTHING = 0.1;
+    // Frames over (or well under) budget needed before changing the level
+    private static final int DOWNGRADE_FRAMES = 30;
+    private static final int UPGRADE_FRAMES = 120;
+    // Fraction of the budget the frame time must fall below to upgrade
+    private static final double UPGRADE_THRESHOLD = 0.5;
+    // Drawn car length, in pixels, at zoom 1
+    private static final double CAR_LENGTH = 40;
+
+    // Level of detail thresholds, may be changed with -Dcars.lowDetailCars=N and -Dcars.lowDetailPixels=N
+    static final int LOW_DETAIL_CARS = Integer.getInteger("cars.lowDetailCars", 1500);
+    static final int LOW_DETAIL_PIXELS = Integer.getInteger("cars.lowDetailPixels", 12);
+
+    private final long frameBudgetNanos;
+    private final int lowDetailCarCount;
+    private final double lowDetailCarPixels;
+
+    private Level level = Level.HIGH;
+    private double averageNanos = 0;
+    private int framesOver = 0;
+    private int framesUnder = 0;
+
+    /**
+     * @param frameBudgetNanos   Target frame time.
+     * @param lowDetailCarCount  Car count above which cars are drawn with low detail.
+     * @param lowDetailCarPixels On screen car length, in pixels, below which cars are drawn with low detail.
+     */
+    RenderQuality(long frameBudgetNanos, int lowDetailCarCount, double lowDetailCarPixels) {
+        if (frameBudgetNanos <= 0) {
+            throw new IllegalArgumentException("frameBudgetNanos must be greater than 0");
+        }
+        this.frameBudgetNanos = frameBudgetNanos;
+        this.lowDetailCarCount = lowDetailCarCount;
+        this.lowDetailCarPixels = lowDetailCarPixels;
+    }
+
+    Level getLevel() { return level; }
+    double getAverageFrameMillis() { return averageNanos / 1e6; }
+
+    /**
+     * Records the time spent by the last frame, possibly changing the quality level.
+     */
+    void frame(long nanos) {
+        averageNanos = averageNanos == 0 ? nanos : averageNanos + (nanos - averageNanos) * SMOOTHING;
+
+        framesOver = averageNanos > frameBudgetNanos ? framesOver + 1 : 0;
+        framesUnder = averageNanos < frameBudgetNanos * UPGRADE_THRESHOLD ? framesUnder + 1 : 0;
+
+        if (framesOver >= DOWNGRADE_FRAMES && level != Level.LOW) {
+            level = Level.values()[level.ordinal() + 1];
+            framesOver = 0;
+        } else if (framesUnder >= UPGRADE_FRAMES && level != Level.HIGH) {
+            level = Level.values()[level.ordinal() - 1];
+            framesUnder = 0;
+        }
+    }
+
+    /**
+     * Sets the rendering hints of the current level.
+     */
+    void apply(Graphics2D g) {
+        switch (level) {
+            case HIGH -> {
+                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+                g.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_QUALITY);
+                g.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            }
+            case MEDIUM -> {
+                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_SPEED);
+                g.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_OFF);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_DEFAULT);
+            }
+            case LOW -> {
+                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+                g.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_SPEED);
+                g.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_OFF);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+            }
+        }
+    }
+
+    /**
+     * @param carCount Number of cars to draw.
+     * @param zoom     Scale from world to screen pixels.
+     * @return True if cars should be drawn with the low level of detail.
+     */
+    boolean isLowDetail(int carCount, double zoom) {
+        return carCount > lowDetailCarCount || CAR_LENGTH * zoom < lowDetailCarPixels;
+    }
+}
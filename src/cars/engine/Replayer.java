@@ -0,0 +1,258 @@
+package cars.engine;
+
+import java.awt.*;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static cars.engine.Recorder.*;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Plays back a run written by {@link Recorder}, without running any steering code.
+ * <p>
+ * Recorded ticks are addressed as frames, from 0 to {@link #getFrameCount()} - 1. Moving to the
+ * next frame reads a single record, and seeking to any frame reads its keyframe plus at most a
+ * keyframe interval of deltas, so playback and scrubbing run far faster than real time.
+ * <p>
+ * Not thread safe.
+ */
+public final class Replayer implements AutoCloseable {
+    private final FileChannel channel;
+    private final MappedByteBuffer[] chunks;
+    private final int carCount;
+    private final int keyframeInterval;
+    private final long frameCount;
+    private final long[] keyframes;
+    private final Color[] colors;
+
+    // State of the current frame
+    private long frame = -1;
+    private long next;                  // position of the next record
+    private long tick;
+    private double time;
+    private double dt;
+    private double width;
+    private double height;
+    private boolean hasMousePos;
+    private boolean hasClickPos;
+    private final Vector2 mousePos = new Vector2();
+    private final Vector2 clickPos = new Vector2();
+    final double[] px;
+    final double[] py;
+    final double[] ppx;                 // position in the previous frame
+    final double[] ppy;
+    final double[] vx;
+    final double[] vy;
+    final double[] fx;
+    final double[] fy;
+
+    /**
+     * Opens a recording and moves to its first frame, if any.
+     */
+    public Replayer(Path file) throws IOException {
+        this.channel = FileChannel.open(file, READ);
+        try {
+            final var size = channel.size();
+            final var first = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, CHUNK_SIZE));
+            if (size < HEADER_SIZE || first.getInt(0) != MAGIC) {
+                throw new IOException("not a recording: " + file);
+            }
+            if (first.getInt(4) != VERSION) {
+                throw new IOException("unsupported recording version: " + first.getInt(4));
+            }
+            carCount = first.getInt(HEADER_CAR_COUNT);
+            keyframeInterval = first.getInt(HEADER_KEYFRAME_INTERVAL);
+            frameCount = first.getLong(HEADER_FRAMES);
+            final var end = first.getLong(HEADER_END);
+            if (end > size) {
+                throw new IOException("truncated recording: " + file);
+            }
+
+            chunks = new MappedByteBuffer[(int) ((end + CHUNK_SIZE - 1) / CHUNK_SIZE)];
+            chunks[0] = first;
+            for (var c = 1; c < chunks.length; c++) {
+                final var start = c * CHUNK_SIZE;
+                chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size - start, CHUNK_SIZE));
+            }
+
+            colors = new Color[carCount];
+            for (var i = 0; i < carCount; i++) colors[i] = new Color(first.getInt(HEADER_SIZE + 4 * i));
+            final var index = first.getLong(HEADER_INDEX);
+            next = HEADER_SIZE + 4L * carCount;
+            keyframes = index != 0 ? readIndex(index) : scanIndex(next, end);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+        px = new double[carCount];
+        py = new double[carCount];
+        ppx = new double[carCount];
+        ppy = new double[carCount];
+        vx = new double[carCount];
+        vy = new double[carCount];
+        fx = new double[carCount];
+        fy = new double[carCount];
+        if (frameCount > 0) seek(0);
+    }
+
+    private long[] readIndex(long position) throws IOException {
+        final var chunk = chunk(position);
+        final var offset = offset(position);
+        if (chunk.getInt(offset) != INDEX_MAGIC) {
+            throw new IOException("corrupt keyframe index");
+        }
+        final var keyframes = new long[chunk.getInt(offset + 4)];
+        for (var k = 0; k < keyframes.length; k++) keyframes[k] = chunk.getLong(offset + 8 + 8 * k);
+        return keyframes;
+    }
+
+    // The run was not closed: walk all records to find the keyframes
+    private long[] scanIndex(long position, long end) {
+        var keyframes = new long[64];
+        var count = 0;
+        while (position < end) {
+            final var type = chunk(position).get(offset(position));
+            if (type == PADDING) {
+                position = (position / CHUNK_SIZE + 1) * CHUNK_SIZE;
+                continue;
+            }
+            if (type == KEYFRAME) {
+                if (count == keyframes.length) keyframes = Arrays.copyOf(keyframes, count * 2);
+                keyframes[count++] = position;
+            }
+            position += recordSize(type, carCount);
+        }
+        return Arrays.copyOf(keyframes, count);
+    }
+
+    /**
+     * Moves to the given frame.
+     */
+    public void seek(long frame) {
+        if (frame < 0 || frame >= frameCount) {
+            throw new IndexOutOfBoundsException("frame " + frame + " of " + frameCount);
+        }
+        if (frame == this.frame) return;
+        if (frame == this.frame + 1) {
+            next();
+            return;
+        }
+
+        // Read the keyframe, then apply the deltas up to the frame
+        final var keyframe = frame / keyframeInterval;
+        next = keyframes[(int) keyframe];
+        this.frame = keyframe * keyframeInterval - 1;
+        while (this.frame < frame) read();
+        if (frame % keyframeInterval == 0) {
+            // No previous frame was read: do not interpolate
+            System.arraycopy(px, 0, ppx, 0, carCount);
+            System.arraycopy(py, 0, ppy, 0, carCount);
+        }
+    }
+
+    /**
+     * Moves to the next frame.
+     *
+     * @return False, staying in the last frame, if there are no more frames.
+     */
+    public boolean next() {
+        if (frame + 1 >= frameCount) return false;
+        read();
+        return true;
+    }
+
+    private void read() {
+        var chunk = chunk(next);
+        if (chunk.get(offset(next)) == PADDING) {
+            next = (next / CHUNK_SIZE + 1) * CHUNK_SIZE;
+            chunk = chunk(next);
+        }
+        var at = offset(next);
+        final var type = chunk.get(at);
+        tick = chunk.getLong(at + 1);
+        time = chunk.getDouble(at + 9);
+        dt = chunk.getDouble(at + 17);
+        width = chunk.getDouble(at + 25);
+        height = chunk.getDouble(at + 33);
+        final var flags = chunk.get(at + 41);
+        hasMousePos = (flags & HAS_MOUSE) != 0;
+        hasClickPos = (flags & HAS_CLICK) != 0;
+        mousePos.set(chunk.getDouble(at + 42), chunk.getDouble(at + 50));
+        clickPos.set(chunk.getDouble(at + 58), chunk.getDouble(at + 66));
+        at += RECORD_HEADER_SIZE;
+
+        System.arraycopy(px, 0, ppx, 0, carCount);
+        System.arraycopy(py, 0, ppy, 0, carCount);
+        for (var i = 0; i < carCount; i++) {
+            if (type == KEYFRAME) {
+                px[i] = chunk.getDouble(at);
+                py[i] = chunk.getDouble(at + 8);
+                vx[i] = chunk.getDouble(at + 16);
+                vy[i] = chunk.getDouble(at + 24);
+                fx[i] = chunk.getDouble(at + 32);
+                fy[i] = chunk.getDouble(at + 40);
+                at += 48;
+            } else {
+                px[i] += chunk.getFloat(at);
+                py[i] += chunk.getFloat(at + 4);
+                vx[i] = chunk.getFloat(at + 8);
+                vy[i] = chunk.getFloat(at + 12);
+                fx[i] = chunk.getFloat(at + 16);
+                fy[i] = chunk.getFloat(at + 20);
+                at += 24;
+            }
+        }
+        next += recordSize(type, carCount);
+        frame++;
+    }
+
+    private MappedByteBuffer chunk(long position) {
+        return chunks[(int) (position / CHUNK_SIZE)];
+    }
+
+    private static int offset(long position) {
+        return (int) (position % CHUNK_SIZE);
+    }
+
+    public long getFrame() { return frame; }
+    public long getFrameCount() { return frameCount; }
+    public int getCarCount() { return carCount; }
+
+    /**
+     * @return The simulation tick recorded in the current frame.
+     */
+    public long getTick() { return tick; }
+    public double getTime() { return time; }
+    public double getDt() { return dt; }
+    public double getWidth() { return width; }
+    public double getHeight() { return height; }
+
+    public Color getColor(int car) { return colors[car]; }
+
+    public Vector2 getPosition(int car, Vector2 out) { return out.set(px[car], py[car]); }
+    public Vector2 getVelocity(int car, Vector2 out) { return out.set(vx[car], vy[car]); }
+    public Vector2 getSteering(int car, Vector2 out) { return out.set(fx[car], fy[car]); }
+
+    /**
+     * @return out, or null if there was no mouse position in this frame.
+     */
+    public Vector2 getMousePos(Vector2 out) {
+        return hasMousePos ? out.set(mousePos) : null;
+    }
+
+    /**
+     * @return out, or null if no click was given up to this frame.
+     */
+    public Vector2 getClickPos(Vector2 out) {
+        return hasClickPos ? out.set(clickPos) : null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
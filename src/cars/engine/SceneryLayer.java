@@ -0,0 +1,179 @@
+package cars.engine;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+/**
+ * Draws the static scenery, obstacles and, in debug mode, paths, through a cached image.
+ * <p>
+ * Scenery never moves, so it is rendered once, at the current zoom, into a translucent image of
+ * the world around the view: the view plus half of it on every side, clipped to the scenery
+ * bounds. Later frames just copy it, at the place the view transform puts it, so panning or
+ * following a car only moves the copy. The image is rendered again when the scenery, the zoom
+ * or the debug mode change, or when the view leaves the cached area. Views that are not just
+ * translated and scaled, like rotated ones, are drawn directly. Must be used by one thread at a
+ * time.
+ */
+final class SceneryLayer {
+    private static final Color FILL = new Color(90, 90, 90);
+    private static final Color OUTLINE = new Color(40, 40, 40);
+    private static final Stroke WALL_STROKE = new BasicStroke(4f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+    private static final Stroke OUTLINE_STROKE = new BasicStroke(1.5f);
+
+    private static final Color PATH_COLOR = new Color(0, 140, 0, 160);
+    private static final Stroke PATH_STROKE = new BasicStroke(
+        2f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND, 10f, new float[]{8f, 6f}, 0f
+    );
+    private static final double WAYPOINT_SIZE = 5.0;
+    // Waypoints are not drawn on denser paths, they would just blur the line
+    private static final int MAX_WAYPOINTS = 500;
+    // Farthest strokes, waypoints and antialiasing reach out of the shapes, in world units
+    private static final double STROKE_REACH = 4.0;
+    // Cached world around the view, as a fraction of the view size on each side
+    private static final double MARGIN = 0.5;
+
+    private List<Obstacle> obstacles = List.of();
+    private List<Path> paths = List.of();
+    private boolean debug;
+    private final Rectangle2D.Double bounds = new Rectangle2D.Double();     // of the whole scenery
+    private BufferedImage image;
+    private double scale;                   // device pixels per world unit of the image
+    private final Rectangle2D.Double cached = new Rectangle2D.Double();     // world area in the image
+    private final Rectangle2D.Double visible = new Rectangle2D.Double();    // scratch
+
+    /**
+     * Draws the scenery with the current transform of g.
+     *
+     * @param width  Width of the area to cover, in the units of the default transform of g.
+     * @param height Height of the area to cover.
+     */
+    void draw(Graphics2D g, List<Obstacle> obstacles, List<Path> paths, boolean debug, int width, int height) {
+        if (obstacles.isEmpty() && (paths.isEmpty() || !debug)) return;
+
+        final var current = g.getTransform();
+        if (current.getShearX() != 0 || current.getShearY() != 0
+            || current.getScaleX() != current.getScaleY() || !(current.getScaleX() > 0)) {
+            paint(g, obstacles, paths, debug);
+            return;
+        }
+        if (image == null || obstacles != this.obstacles || paths != this.paths || debug != this.debug) {
+            this.obstacles = obstacles;
+            this.paths = paths;
+            this.debug = debug;
+            measure();
+            cached.setRect(0, 0, 0, 0);
+        }
+
+        // World area covered by the screen, in device pixels
+        final var device = g.getDeviceConfiguration().getDefaultTransform();
+        final var pixelWidth = Math.ceil(width * device.getScaleX());
+        final var pixelHeight = Math.ceil(height * device.getScaleY());
+        final var zoom = current.getScaleX();
+        final var left = -current.getTranslateX() / zoom;
+        final var top = -current.getTranslateY() / zoom;
+        final var viewWidth = pixelWidth / zoom;
+        final var viewHeight = pixelHeight / zoom;
+        visible.setRect(left, top, viewWidth, viewHeight);
+        Rectangle2D.intersect(visible, bounds, visible);
+        if (visible.isEmpty()) return;
+
+        if (zoom != scale || !contains(cached, visible)) {
+            cached.setRect(left - viewWidth * MARGIN, top - viewHeight * MARGIN,
+                viewWidth * (1 + 2 * MARGIN), viewHeight * (1 + 2 * MARGIN));
+            Rectangle2D.intersect(cached, bounds, cached);
+            render(g.getDeviceConfiguration(), zoom,
+                (int) Math.ceil(pixelWidth * (1 + 2 * MARGIN)), (int) Math.ceil(pixelHeight * (1 + 2 * MARGIN)));
+        }
+
+        g.setTransform(new AffineTransform());
+        g.drawImage(image,
+            (int) Math.round(cached.x * zoom + current.getTranslateX()),
+            (int) Math.round(cached.y * zoom + current.getTranslateY()),
+            null);
+        g.setTransform(current);
+    }
+
+    // Checks the containment of the world areas, not of the pixels: a little slack for rounding
+    private static boolean contains(Rectangle2D outer, Rectangle2D inner) {
+        return inner.getMinX() >= outer.getMinX() - 1e-6 && inner.getMinY() >= outer.getMinY() - 1e-6
+            && inner.getMaxX() <= outer.getMaxX() + 1e-6 && inner.getMaxY() <= outer.getMaxY() + 1e-6;
+    }
+
+    private void measure() {
+        var first = true;
+        for (final var obstacle : obstacles) {
+            first = add(obstacle.toShape().getBounds2D(), first);
+        }
+        if (debug) {
+            for (final var path : paths) first = add(path.toShape().getBounds2D(), first);
+        }
+        bounds.setRect(bounds.x - STROKE_REACH, bounds.y - STROKE_REACH,
+            bounds.width + 2 * STROKE_REACH, bounds.height + 2 * STROKE_REACH);
+    }
+
+    private boolean add(Rectangle2D shape, boolean first) {
+        if (first) {
+            bounds.setRect(shape);
+        } else {
+            bounds.add(shape);
+        }
+        return false;
+    }
+
+    private void render(GraphicsConfiguration configuration, double zoom, int maxWidth, int maxHeight) {
+        // Sized for the largest cached area at this screen size, so panning reuses it
+        if (image == null || image.getWidth() != maxWidth || image.getHeight() != maxHeight) {
+            if (image != null) image.flush();
+            image = configuration.createCompatibleImage(Math.max(maxWidth, 1), Math.max(maxHeight, 1), Transparency.TRANSLUCENT);
+        }
+        scale = zoom;
+
+        final var g = image.createGraphics();
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(0, 0, image.getWidth(), image.getHeight());
+        g.setComposite(AlphaComposite.SrcOver);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.scale(zoom, zoom);
+        g.translate(-cached.x, -cached.y);
+        paint(g, obstacles, paths, debug);
+        g.dispose();
+    }
+
+    private static void paint(Graphics2D g, List<Obstacle> obstacles, List<Path> paths, boolean debug) {
+        for (final var obstacle : obstacles) {
+            final var shape = obstacle.toShape();
+            if (obstacle.isSolid()) {
+                g.setColor(FILL);
+                g.fill(shape);
+                g.setColor(OUTLINE);
+                g.setStroke(OUTLINE_STROKE);
+            } else {
+                g.setColor(OUTLINE);
+                g.setStroke(WALL_STROKE);
+            }
+            g.draw(shape);
+        }
+        if (debug) {
+            for (final var path : paths) drawPath(g, path);
+        }
+    }
+
+    private static void drawPath(Graphics2D g, Path path) {
+        g.setColor(PATH_COLOR);
+        g.setStroke(PATH_STROKE);
+        g.draw(path.toShape());
+        if (path.getPointCount() > MAX_WAYPOINTS) return;
+
+        final var point = new Vector2();
+        for (var i = 0; i < path.getPointCount(); i++) {
+            path.getPoint(i, point);
+            g.fill(new Ellipse2D.Double(
+                point.x - WAYPOINT_SIZE / 2, point.y - WAYPOINT_SIZE / 2, WAYPOINT_SIZE, WAYPOINT_SIZE
+            ));
+        }
+    }
+}
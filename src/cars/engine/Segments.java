@@ -0,0 +1,55 @@
+package cars.engine;
+
+/**
+ * Math on line segments, shared by obstacles and paths. A segment goes from (x0, y0) to (x1, y1).
+ */
+final class Segments {
+    private Segments() {}
+
+    /**
+     * @return Where the point projects on the segment, from 0 at its start to 1 at its end.
+     */
+    static double parameter(double px, double py, double x0, double y0, double x1, double y1) {
+        final var ex = x1 - x0;
+        final var ey = y1 - y0;
+        final var lengthSqr = ex * ex + ey * ey;
+        if (lengthSqr == 0) return 0;
+        return Math.clamp(((px - x0) * ex + (py - y0) * ey) / lengthSqr, 0.0, 1.0);
+    }
+
+    static double distanceSqr(double px, double py, double x0, double y0, double x1, double y1) {
+        final var s = parameter(px, py, x0, y0, x1, y1);
+        final var dx = px - (x0 + (x1 - x0) * s);
+        final var dy = py - (y0 + (y1 - y0) * s);
+        return dx * dx + dy * dy;
+    }
+
+    static Vector2 closestPoint(double px, double py, double x0, double y0, double x1, double y1, Vector2 out) {
+        final var s = parameter(px, py, x0, y0, x1, y1);
+        return out.set(x0 + (x1 - x0) * s, y0 + (y1 - y0) * s);
+    }
+
+    // Parallel rays never hit, even along the segment: a wall is only hit from its sides
+    static double raycast(double ox, double oy, double dx, double dy, double maxDistance,
+                          double x0, double y0, double x1, double y1, Vector2 normal) {
+        final var ex = x1 - x0;
+        final var ey = y1 - y0;
+        final var denominator = dx * ey - dy * ex;
+        if (denominator == 0) return Double.POSITIVE_INFINITY;
+        final var ax = x0 - ox;
+        final var ay = y0 - oy;
+        final var t = (ax * ey - ay * ex) / denominator;
+        final var s = (ax * dy - ay * dx) / denominator;
+        if (t < 0 || t > maxDistance || s < 0 || s > 1) return Double.POSITIVE_INFINITY;
+
+        final var length = Math.hypot(ex, ey);
+        var nx = -ey / length;
+        var ny = ex / length;
+        if (nx * dx + ny * dy > 0) {
+            nx = -nx;
+            ny = -ny;
+        }
+        normal.set(nx, ny);
+        return t;
+    }
+}
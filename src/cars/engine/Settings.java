@@ -1,12 +1,17 @@
 package cars.engine;
 
 import java.awt.*;
+import java.util.concurrent.Callable;
 import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
 
 import static cars.engine.Vector2.vec2;
 
 public final class Settings {
-    private static final RandomGenerator RND = RandomGenerator.getDefault();
+    // Shared by all random settings; see setSeed(). Volatile, so every thread sees a new seed
+    private static volatile RandomGenerator shared = RandomGenerator.getDefault();
+    // Overrides the shared generator in the current thread; see seeded()
+    private static final ThreadLocal<RandomGenerator> LOCAL = new ThreadLocal<>();
 
     Color color;
     double mass = 1;
@@ -19,6 +24,34 @@ public final class Settings {
         randomColor();
     }
 
+    /**
+     * Makes all random settings (color, position and orientation) repeatable: cars created in
+     * the same order after the same seed get the same settings. Call it before creating the cars.
+     */
+    public static synchronized void setSeed(long seed) {
+        shared = RandomGeneratorFactory.getDefault().create(seed);
+    }
+
+    /**
+     * Runs action with random settings drawn from a generator of its own, seeded with the given
+     * seed. Unlike {@link #setSeed(long)}, it only affects the current thread, so several
+     * simulations can be set up at once, each one repeatable.
+     */
+    static <T> T seeded(long seed, Callable<T> action) throws Exception {
+        final var previous = LOCAL.get();
+        LOCAL.set(RandomGeneratorFactory.getDefault().create(seed));
+        try {
+            return action.call();
+        } finally {
+            LOCAL.set(previous);
+        }
+    }
+
+    private static RandomGenerator rnd() {
+        final var local = LOCAL.get();
+        return local != null ? local : shared;
+    }
+
     public Settings rgb(int rgb) {
         this.color = new Color(rgb);
         return this;
@@ -40,9 +73,10 @@ public final class Settings {
     }
 
     public Settings randomColor() {
-        var r = RND.nextInt(200) + 55;
-        var g = RND.nextInt(200) + 55;
-        var b = RND.nextInt(200) + 55;
+        final var rnd = rnd();
+        var r = rnd.nextInt(200) + 55;
+        var g = rnd.nextInt(200) + 55;
+        var b = rnd.nextInt(200) + 55;
         return color(new Color(r, g, b));
     }
 
@@ -83,9 +117,10 @@ public final class Settings {
     }
 
     public Settings randomPosition() {
-        var hw = (int) (Window.INITIAL_WIDTH / 2.0);
-        var hh = (int) (Window.INITIAL_HEIGHT / 2.0);
-        return position(RND.nextInt(-hw, hw), RND.nextInt(-hh, hh));
+        var hw = (int) (Simulation.DEFAULT_WIDTH / 2.0);
+        var hh = (int) (Simulation.DEFAULT_HEIGHT / 2.0);
+        final var rnd = rnd();
+        return position(rnd.nextInt(-hw, hw), rnd.nextInt(-hh, hh));
     }
 
     public Settings orientation(double radians) {
@@ -98,6 +133,6 @@ public final class Settings {
     }
 
     public Settings randomOrientation() {
-        return orientation(RND.nextDouble(0, 2 * Math.PI));
+        return orientation(rnd().nextDouble(0, 2 * Math.PI));
     }
 }
\ No newline at end of file
@@ -0,0 +1,577 @@
+package cars.engine;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static cars.engine.Vector2.vec2;
+
+/**
+ * Headless simulation engine. Advances a list of cars with a fixed time step, as fast as asked to,
+ * with no dependency on a window or on wall-clock time.
+ * <p>
+ * Typical batch usage:
+ * <pre>{@code
+ * var simulation = new Simulation(new Setup().createCars());
+ * simulation.run(10_000);
+ * }</pre>
+ * {@link Window} is just a viewer that calls {@link #step()} at a real time pace.
+ */
+public final class Simulation {
+    public static final double DEFAULT_DT = 1.0 / 60.0;
+    // World size, independent of the window, may be changed with -Dcars.worldWidth=N and -Dcars.worldHeight=N
+    public static final int DEFAULT_WIDTH = Integer.getInteger("cars.worldWidth", Window.INITIAL_WIDTH);
+    public static final int DEFAULT_HEIGHT = Integer.getInteger("cars.worldHeight", Window.INITIAL_HEIGHT);
+
+    // Cars steered by a single fork join task
+    private static final int STEERING_BATCH = 32;
+
+    public static final int DEFAULT_CHECKPOINTS = 16;
+    // Checkpoint header: tick, world size, mouse and click flags and positions
+    private static final int CHECKPOINT_HEADER = 9;
+
+    private final List<Car> cars;
+    private final CarStore store;
+    private final SpatialGrid grid = new SpatialGrid();
+    private Integrator integrator = Integrator.DEFAULT;
+    private final Collisions collisions = new Collisions();
+    private boolean collisionsEnabled = false;
+    private final Sleep sleep = new Sleep();
+    private boolean sleepEnabled = false;
+    private ObstacleTree obstacles = new ObstacleTree(List.of());
+    private List<Path> paths = List.of();
+    private final double dt;
+
+    private double width;
+    private double height;
+    private final Vector2 mousePos = vec2();
+    private final Vector2 clickPos = vec2();
+    private boolean hasMousePos = false;
+    private boolean hasClickPos = false;
+    // Mouse and click positions of the last tick, to wake the cars near a target that moved
+    private final Vector2 tickMousePos = vec2();
+    private final Vector2 tickClickPos = vec2();
+    private boolean hadMousePos = false;
+    private boolean hadClickPos = false;
+    private long ticks = 0;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+    private final Stats stats = new Stats();
+    private boolean measured = false;
+    private Checkpoints checkpoints = new Checkpoints(DEFAULT_CHECKPOINTS, CheckpointEviction.OLDEST);
+    private SteeringWatchdog watchdog = null;   // null when steering has no time budget
+    private SteeringWatchdog retired = null;    // last watchdog, while it has cars still running
+    private int overruns = 0;
+
+    // Reused every tick, so stepping does not allocate
+    private final World[] worlds;
+    private final boolean[] skipped;            // cars not steered in this tick
+    private final SteeringTask steering;
+
+    public Simulation(List<Car> cars) {
+        this(cars, DEFAULT_DT);
+    }
+
+    public Simulation(List<Car> cars, double dt) {
+        this(cars, dt, DEFAULT_WIDTH, DEFAULT_HEIGHT);
+    }
+
+    public Simulation(List<Car> cars, double dt, double width, double height) {
+        if (cars == null) {
+            throw new IllegalArgumentException("cars must not be null");
+        }
+        if (!(dt > 0)) {
+            throw new IllegalArgumentException("dt must be greater than 0");
+        }
+        this.cars = List.copyOf(cars);
+        this.store = new CarStore(this.cars.size());
+        this.cars.forEach(car -> car.attach(store));
+        this.worlds = new World[this.cars.size()];
+        for (var i = 0; i < worlds.length; i++) {
+            worlds[i] = new World(dt, this.cars.get(i), this.cars, grid, null, null, width, height);
+            worlds[i].setCollisions(collisions);
+        }
+        this.skipped = new boolean[worlds.length];
+        this.steering = new SteeringTask(worlds, skipped, 0, worlds.length);
+        this.dt = dt;
+        setSize(width, height);
+    }
+
+    /**
+     * Advances the simulation by one fixed time step.
+     * <p>
+     * The update has two phases. First every car computes its steering force against the
+     * state of the previous tick, in parallel, since no car moves in the meantime. Then all
+     * cars are integrated and, if {@link #setCollisionsEnabled(boolean) enabled}, cars that
+     * overlap are pushed apart. Results do not depend on the list order or on the thread count.
+     * Cars put to {@link #setSleepEnabled(boolean) sleep} are skipped by both phases.
+     */
+    public void step() {
+        final var measure = measured;
+        final var start = measure ? System.nanoTime() : 0;
+        final var startBytes = measure ? Stats.allocatedBytes() : 0;
+
+        grid.rebuild(cars, width, height);
+        if (sleepEnabled) wakeNearTargets();
+        final var mouse = hasMousePos ? mousePos : null;
+        final var click = hasClickPos ? clickPos : null;
+        if (retired != null && retired.isIdle()) retired = null;
+        final var busy = watchdog != null ? watchdog : retired;
+        for (var i = 0; i < worlds.length; i++) {
+            // A car still steering a past tick keeps reading its world
+            skipped[i] = store.asleep[i] || busy != null && busy.isBusy(i);
+            if (!skipped[i]) worlds[i].update(dt, mouse, click, width, height, measure);
+        }
+
+        final var steeringStart = measure ? System.nanoTime() : 0;
+        final var steeringStartBytes = measure ? Stats.allocatedBytes() : 0;
+        if (watchdog != null) {
+            overruns = watchdog.steerAll(store.asleep);
+        } else if (pool == null || worlds.length <= STEERING_BATCH) {
+            steering.steerAll();
+        } else {
+            steering.reinitializeAll();
+            pool.invoke(steering);
+        }
+        final var steeringEnd = measure ? System.nanoTime() : 0;
+        final var steeringEndBytes = measure ? Stats.allocatedBytes() : 0;
+
+        integrator.integrate(store, dt, width, height);
+        final var integrationEnd = measure ? System.nanoTime() : 0;
+        if (collisionsEnabled) collisions.resolve(store, width, height);
+        if (sleepEnabled) sleep.update(store, cars, grid, collisionsEnabled ? collisions : null);
+        ticks++;
+
+        if (measure) {
+            final var end = System.nanoTime();
+            // Steering allocations are measured per car, in the thread that ran each one
+            final var engineBytes = Stats.allocatedBytes() - startBytes - (steeringEndBytes - steeringStartBytes);
+            record(start, steeringStart, steeringEnd, integrationEnd, end, engineBytes);
+        }
+    }
+
+    private void record(long start, long steeringStart, long steeringEnd, long integrationEnd, long end, long engineBytes) {
+        var neighborNanos = 0L;
+        var steeringBytes = 0L;
+        for (var i = 0; i < worlds.length; i++) {
+            // Its world was not updated, and holds the numbers of an older tick
+            if (store.asleep[i]) continue;
+            final var world = worlds[i];
+            final var carClass = world.getCurrent().getClass();
+            if (watchdog != null && watchdog.overran(i)) {
+                // Its world may still be in use, count the whole budget instead
+                stats.recordSteering(carClass, watchdog.getBudgetNanos());
+                stats.recordOverrun(carClass);
+                continue;
+            }
+            if (skipped[i] || watchdog != null && watchdog.deferred(i)) continue;
+            stats.recordSteering(carClass, world.steeringNanos);
+            neighborNanos += world.neighborNanos;
+            steeringBytes += world.steeringBytes;
+        }
+        stats.get(Stats.OVERRUNS).record(overruns);
+        stats.get(Stats.TICK).record(end - start);
+        stats.get(Stats.GRID).record(steeringStart - start);
+        stats.get(Stats.STEERING).record(steeringEnd - steeringStart);
+        stats.get(Stats.INTEGRATION).record(integrationEnd - steeringEnd);
+        if (collisionsEnabled) {
+            stats.get(Stats.COLLISION).record(end - integrationEnd);
+            stats.get(Stats.COLLISIONS).record(collisions.getCollisions());
+        }
+        if (sleepEnabled) stats.get(Stats.SLEEPING).record(sleep.getSleeping());
+        stats.get(Stats.NEIGHBORS).record(neighborNanos);
+        stats.get(Stats.ALLOCATED_BYTES).record(engineBytes + steeringBytes);
+    }
+
+    /**
+     * Advances the simulation by the given number of ticks.
+     *
+     * @param ticks Number of fixed steps to run.
+     */
+    public void run(long ticks) {
+        if (ticks < 0) {
+            throw new IllegalArgumentException("ticks must not be negative");
+        }
+        for (var i = 0L; i < ticks; i++) step();
+    }
+
+    /**
+     * Chooses the pool used to compute steering forces.
+     *
+     * @param pool The pool, or null to compute all steering in the calling thread.
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Chooses how cars are integrated. All integrators give the same results.
+     */
+    void setIntegrator(Integrator integrator) {
+        if (integrator == null) {
+            throw new IllegalArgumentException("integrator must not be null");
+        }
+        this.integrator = integrator;
+    }
+
+    Integrator getIntegrator() { return integrator; }
+
+    /**
+     * Turns the collision phase on or off. It is off by default, so cars drive through each
+     * other as they always did. See {@link Collisions} for how contacts are solved.
+     */
+    public void setCollisionsEnabled(boolean enabled) {
+        this.collisionsEnabled = enabled;
+        if (!enabled) collisions.clear();
+    }
+
+    public boolean isCollisionsEnabled() { return collisionsEnabled; }
+
+    /**
+     * @return The number of pairs of cars in contact in the last tick, 0 when collisions are off.
+     */
+    public int getCollisions() { return collisions.getCollisions(); }
+
+    /**
+     * Turns sleeping on or off. It is off by default. When on, cars that barely move and steer
+     * for a few ticks fall asleep, and cost nothing until something wakes them: a moving car
+     * nearby, a collision, the mouse or click position moving near them, or {@link #wake(Car)}.
+     * Turning it off wakes every car. See {@link Sleep} for the thresholds.
+     */
+    public void setSleepEnabled(boolean enabled) {
+        this.sleepEnabled = enabled;
+        if (!enabled) sleep.wakeAll(store);
+    }
+
+    public boolean isSleepEnabled() { return sleepEnabled; }
+
+    /**
+     * Wakes a car up, so it is steered again from the next tick. Cars whose steering depends on
+     * something the engine does not see, like a timer, can be woken up this way.
+     *
+     * @throws IllegalArgumentException If the car is not part of this simulation.
+     */
+    public void wake(Car car) {
+        sleep.wake(store, indexOf(car));
+    }
+
+    public void wakeAll() {
+        sleep.wakeAll(store);
+    }
+
+    /**
+     * @throws IllegalArgumentException If the car is not part of this simulation.
+     */
+    public boolean isAsleep(Car car) {
+        return store.asleep[indexOf(car)];
+    }
+
+    /**
+     * @return The number of sleeping cars.
+     */
+    public int getSleeping() { return sleep.getSleeping(); }
+
+    private int indexOf(Car car) {
+        if (car == null) {
+            throw new IllegalArgumentException("car must not be null");
+        }
+        final var index = car.getIndex();
+        if (index >= cars.size() || cars.get(index) != car) {
+            throw new IllegalArgumentException("car is not part of this simulation");
+        }
+        return index;
+    }
+
+    /**
+     * Runs each car's steering under a time budget, on worker threads of its own, so a slow or
+     * looping car can't stall the simulation. A car that overruns keeps the steering force of
+     * its last completed tick, and is skipped until its pending computation returns. A tick
+     * waits until every car has finished or overrun, unless every worker is stuck in a car.
+     * Results stay deterministic as long as no car overruns.
+     * <p>
+     * Changing the budget, or turning it off, does not wait for cars still running under the old
+     * one: they are skipped, and their worlds left alone, until their steering returns.
+     *
+     * @param budgetNanos Steering time allowed to each car per tick, or 0 to steer without a budget,
+     *                    in the pool set by {@link #setPool(ForkJoinPool)}.
+     */
+    public void setSteeringBudget(long budgetNanos) {
+        if (budgetNanos < 0) {
+            throw new IllegalArgumentException("budgetNanos must not be negative");
+        }
+        // Workers of the old watchdog may still be in a car: it stays busy until they return
+        if (watchdog != null) {
+            watchdog.stop();
+            retired = watchdog;
+        }
+        if (budgetNanos > 0) {
+            watchdog = new SteeringWatchdog(worlds, budgetNanos, retired);
+            retired = null;
+        } else {
+            watchdog = null;
+        }
+        overruns = 0;
+    }
+
+    public long getSteeringBudget() {
+        return watchdog == null ? 0 : watchdog.getBudgetNanos();
+    }
+
+    /**
+     * @return The number of cars that overran their steering budget in the last tick.
+     */
+    public int getOverruns() { return overruns; }
+
+    /**
+     * @return True if the car at the given index overran its steering budget in the last tick.
+     */
+    public boolean isOverrun(int car) {
+        return watchdog != null && watchdog.overran(car);
+    }
+
+    /**
+     * Turns per-tick instrumentation on or off. It is off by default, since it costs a couple
+     * of clock reads per car.
+     *
+     * @see #getStats()
+     */
+    public void setMeasured(boolean measured) {
+        this.measured = measured;
+    }
+
+    public boolean isMeasured() { return measured; }
+
+    /**
+     * @return Timings recorded while measuring. Only safe to read from the thread that steps the simulation.
+     */
+    public Stats getStats() { return stats; }
+
+    /**
+     * Saves the state of the whole world: tick, world size, input and the position, velocity
+     * and steering of every car, into a pooled primitive buffer.
+     * <p>
+     * Fields of the car subclasses are not saved: a what-if run that must restore them should
+     * keep that state itself, keyed by the checkpoint id.
+     *
+     * @return The checkpoint id, to pass to {@link #restore(long)}.
+     * @throws IllegalStateException If all checkpoints are in use and the eviction is
+     *                               {@link CheckpointEviction#REJECT}.
+     */
+    public long checkpoint() {
+        final var slot = checkpoints.reserve(ticks, CHECKPOINT_HEADER + store.stateSize());
+        final var data = checkpoints.data(slot);
+        data[0] = ticks;
+        data[1] = width;
+        data[2] = height;
+        data[3] = hasMousePos ? 1 : 0;
+        data[4] = mousePos.x;
+        data[5] = mousePos.y;
+        data[6] = hasClickPos ? 1 : 0;
+        data[7] = clickPos.x;
+        data[8] = clickPos.y;
+        store.save(data, CHECKPOINT_HEADER);
+        return checkpoints.id(slot);
+    }
+
+    /**
+     * Rolls the world back to a checkpoint, in time proportional to the car count and without
+     * allocating. The checkpoint is kept, so the same state can be restored many times.
+     *
+     * @throws IllegalArgumentException If the checkpoint does not exist or was evicted.
+     */
+    public void restore(long checkpoint) {
+        final var slot = checkpoints.find(checkpoint);
+        if (slot == -1) {
+            throw new IllegalArgumentException("no such checkpoint: " + checkpoint);
+        }
+        final var data = checkpoints.data(slot);
+        ticks = (long) data[0];
+        width = data[1];
+        height = data[2];
+        hasMousePos = data[3] != 0;
+        mousePos.set(data[4], data[5]);
+        hasClickPos = data[6] != 0;
+        clickPos.set(data[7], data[8]);
+        store.load(data, CHECKPOINT_HEADER);
+        collisions.clear();
+        sleep.recount(store);
+    }
+
+    /**
+     * Frees a checkpoint slot, keeping its buffer for the next checkpoint.
+     *
+     * @return False if there is no such checkpoint.
+     */
+    public boolean release(long checkpoint) {
+        return checkpoints.release(checkpoint);
+    }
+
+    public boolean hasCheckpoint(long checkpoint) {
+        return checkpoints.find(checkpoint) != -1;
+    }
+
+    /**
+     * Sets how many checkpoints are kept and which one is dropped when they are all in use.
+     * Discards all existing checkpoints. Lookups scan the slots, so keep the capacity small.
+     */
+    public void setCheckpoints(int capacity, CheckpointEviction eviction) {
+        this.checkpoints = new Checkpoints(capacity, eviction);
+    }
+
+    /**
+     * Places static obstacles in the world, replacing any previous ones. Obstacles are indexed
+     * once, here, so this is meant to be called when setting the simulation up.
+     */
+    public void setObstacles(List<Obstacle> obstacles) {
+        if (obstacles == null) {
+            throw new IllegalArgumentException("obstacles must not be null");
+        }
+        this.obstacles = new ObstacleTree(obstacles);
+        for (final var world : worlds) world.setObstacles(this.obstacles);
+    }
+
+    public List<Obstacle> getObstacles() { return obstacles.getObstacles(); }
+
+    /**
+     * Sets the paths cars may follow, see {@link World#getPaths()}.
+     */
+    public void setPaths(List<Path> paths) {
+        if (paths == null) {
+            throw new IllegalArgumentException("paths must not be null");
+        }
+        this.paths = List.copyOf(paths);
+        for (final var world : worlds) world.setPaths(this.paths);
+    }
+
+    public List<Path> getPaths() { return paths; }
+
+    public List<Car> getCars() { return cars; }
+    CarStore getStore() { return store; }
+    Collisions getCollisionPhase() { return collisions; }
+    public double getDt() { return dt; }
+    public long getTicks() { return ticks; }
+    public double getTime() { return ticks * dt; }
+    public double getWidth() { return width; }
+    public double getHeight() { return height; }
+
+    public Vector2 getMousePos() {
+        return hasMousePos ? mousePos.clone() : null;
+    }
+
+    public Vector2 getClickPos() {
+        return hasClickPos ? clickPos.clone() : null;
+    }
+
+    /**
+     * Copies the mouse position into out.
+     *
+     * @return out, or null if there is no mouse position.
+     */
+    public Vector2 getMousePos(Vector2 out) {
+        return hasMousePos ? out.set(mousePos) : null;
+    }
+
+    /**
+     * Copies the last click position into out.
+     *
+     * @return out, or null if no click was given yet.
+     */
+    public Vector2 getClickPos(Vector2 out) {
+        return hasClickPos ? out.set(clickPos) : null;
+    }
+
+    /**
+     * Changes the world size. Cars wrap around at its borders.
+     */
+    public void setSize(double width, double height) {
+        if (!(width > 0) || !(height > 0)) {
+            throw new IllegalArgumentException("width and height must be greater than 0");
+        }
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * @param mousePos Mouse position, relative to the world center. May be null.
+     */
+    public void setMousePos(Vector2 mousePos) {
+        hasMousePos = mousePos != null;
+        if (hasMousePos) this.mousePos.set(mousePos);
+    }
+
+    /**
+     * @param clickPos Last click position, relative to the world center. May be null.
+     */
+    public void setClickPos(Vector2 clickPos) {
+        hasClickPos = clickPos != null;
+        if (hasClickPos) this.clickPos.set(clickPos);
+    }
+
+    // A target that moved may get the sleeping cars near where it was, or now is, going again
+    private void wakeNearTargets() {
+        if (changed(hadMousePos, tickMousePos, hasMousePos, mousePos)) {
+            if (hadMousePos) sleep.wakeNear(store, grid, tickMousePos.x, tickMousePos.y);
+            if (hasMousePos) sleep.wakeNear(store, grid, mousePos.x, mousePos.y);
+        }
+        if (changed(hadClickPos, tickClickPos, hasClickPos, clickPos)) {
+            if (hadClickPos) sleep.wakeNear(store, grid, tickClickPos.x, tickClickPos.y);
+            if (hasClickPos) sleep.wakeNear(store, grid, clickPos.x, clickPos.y);
+        }
+        hadMousePos = hasMousePos;
+        hadClickPos = hasClickPos;
+        tickMousePos.set(mousePos);
+        tickClickPos.set(clickPos);
+    }
+
+    private static boolean changed(boolean had, Vector2 last, boolean has, Vector2 next) {
+        if (had != has) return true;
+        return has && (last.x != next.x || last.y != next.y);
+    }
+
+    /**
+     * Fork join tree over the worlds. The tree is built once and reinitialized every tick.
+     */
+    private static final class SteeringTask extends RecursiveAction {
+        private final World[] worlds;
+        private final boolean[] skipped;
+        private final int from;
+        private final int to;
+        private final SteeringTask left;
+        private final SteeringTask right;
+
+        SteeringTask(World[] worlds, boolean[] skipped, int from, int to) {
+            this.worlds = worlds;
+            this.skipped = skipped;
+            this.from = from;
+            this.to = to;
+            if (to - from <= STEERING_BATCH) {
+                left = right = null;
+            } else {
+                final var mid = (from + to) >>> 1;
+                left = new SteeringTask(worlds, skipped, from, mid);
+                right = new SteeringTask(worlds, skipped, mid, to);
+            }
+        }
+
+        void steerAll() {
+            for (var i = from; i < to; i++) {
+                if (!skipped[i]) worlds[i].steer();
+            }
+        }
+
+        void reinitializeAll() {
+            reinitialize();
+            if (left == null) return;
+            left.reinitializeAll();
+            right.reinitializeAll();
+        }
+
+        @Override
+        protected void compute() {
+            if (left == null) {
+                steerAll();
+                return;
+            }
+            invokeAll(left, right);
+        }
+    }
+}
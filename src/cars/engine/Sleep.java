@@ -0,0 +1,161 @@
+package cars.engine;
+
+import java.util.List;
+
+/**
+ * Puts idle cars to sleep, so a {@link Simulation} skips them, and wakes them up again.
+ * <p>
+ * A car is idle in a tick when it returns no steering force, or when both its speed and its
+ * steering force are below small thresholds, like a parked target or a car that has arrived.
+ * After {@link #SLEEP_TICKS} idle ticks in a row it falls asleep: its force is cleared and, until
+ * it wakes up, its world is not updated, it is not steered and it is not integrated, so it stays
+ * where it is. Its velocity is kept, so it is still drawn facing the same way. Sleeping cars are
+ * still neighbors of the other cars.
+ * <p>
+ * Sleeping cars wake up when a moving car comes within {@link #WAKE_RADIUS}, when a collision
+ * pushes them, when the mouse or click position moves away from or to within
+ * {@link #WAKE_RADIUS} of them, or through {@link Simulation#wake(Car)}. Near cars are found in
+ * the grid of the tick, from the side with fewer cars: around each sleeping car, or around each
+ * moving one.
+ * <p>
+ * Not thread safe: it runs in the thread that steps the simulation.
+ */
+final class Sleep {
+    // Speed, in pixels per second, and force under which a car is idle
+    static final double SLEEP_SPEED = 1;
+    static final double SLEEP_FORCE = 1;
+    // Idle ticks before falling asleep, half a second at the default dt
+    static final int SLEEP_TICKS = 30;
+    // Moving cars closer than this wake sleeping ones, about the reach of neighbor queries
+    static final double WAKE_RADIUS = 100;
+
+    private CarStore store;
+    private int sleeping = 0;
+    private boolean moverFound;
+    private int[] found = new int[0];       // scratch of wakeNear()
+
+    // Allocated once, see wakeNearMovers()
+    private final NeighborConsumer findMover = (car, distanceSqr) -> {
+        if (isMoving(car.getIndex())) moverFound = true;
+    };
+    private final NeighborConsumer wakeSleeper = (car, distanceSqr) -> {
+        if (store.asleep[car.getIndex()]) wake(store, car.getIndex());
+    };
+
+    /**
+     * Wakes the cars that were disturbed in this tick, then puts the idle ones to sleep. Runs
+     * after integration and collisions.
+     *
+     * @param grid       Grid of the tick, holding all cars.
+     * @param collisions Contacts of the tick, or null when collisions are off.
+     */
+    void update(CarStore store, List<Car> cars, SpatialGrid grid, Collisions collisions) {
+        this.store = store;
+        final var n = store.size();
+        if (sleeping > 0) {
+            if (collisions != null) {
+                for (var i = 0; i < n; i++) {
+                    if (store.asleep[i] && collisions.getContacts(i) > 0) wake(store, i);
+                }
+            }
+            wakeNearMovers(cars, grid);
+        }
+
+        for (var i = 0; i < n; i++) {
+            if (store.asleep[i]) continue;
+            if (!isIdle(i)) {
+                store.idleTicks[i] = 0;
+                continue;
+            }
+            if (++store.idleTicks[i] < SLEEP_TICKS) continue;
+            store.asleep[i] = true;
+            store.steered[i] = false;
+            store.fx[i] = 0;
+            store.fy[i] = 0;
+            sleeping++;
+        }
+        this.store = null;
+    }
+
+    private void wakeNearMovers(List<Car> cars, SpatialGrid grid) {
+        final var n = store.size();
+        var movers = 0;
+        for (var i = 0; i < n; i++) {
+            if (isMoving(i)) movers++;
+        }
+        if (movers == 0) return;
+
+        if (sleeping <= movers) {
+            for (var i = 0; i < n; i++) {
+                if (!store.asleep[i]) continue;
+                moverFound = false;
+                grid.forEach(cars.get(i), WAKE_RADIUS, findMover);
+                if (moverFound) wake(store, i);
+            }
+        } else {
+            for (var i = 0; i < n; i++) {
+                if (isMoving(i)) grid.forEach(cars.get(i), WAKE_RADIUS, wakeSleeper);
+            }
+        }
+    }
+
+    private boolean isMoving(int i) {
+        return !store.asleep[i] && store.steered[i]
+            && store.vx[i] * store.vx[i] + store.vy[i] * store.vy[i] >= SLEEP_SPEED * SLEEP_SPEED;
+    }
+
+    // Cars with no steering force are not integrated, so they stand still whatever their velocity
+    private boolean isIdle(int i) {
+        if (!store.steered[i]) return true;
+        return store.vx[i] * store.vx[i] + store.vy[i] * store.vy[i] < SLEEP_SPEED * SLEEP_SPEED
+            && store.fx[i] * store.fx[i] + store.fy[i] * store.fy[i] < SLEEP_FORCE * SLEEP_FORCE;
+    }
+
+    /**
+     * Wakes the sleeping cars within {@link #WAKE_RADIUS} of a point, like a mouse position that
+     * moved away from or to it.
+     *
+     * @param grid Grid of the tick, holding all cars.
+     */
+    void wakeNear(CarStore store, SpatialGrid grid, double x, double y) {
+        if (sleeping == 0) return;
+        if (found.length < store.size()) found = new int[store.size()];
+        final var count = grid.inRect(x - WAKE_RADIUS, y - WAKE_RADIUS, x + WAKE_RADIUS, y + WAKE_RADIUS, found);
+        for (var k = 0; k < count; k++) {
+            final var i = found[k];
+            if (!store.asleep[i]) continue;
+            final var dx = store.px[i] - x;
+            final var dy = store.py[i] - y;
+            if (dx * dx + dy * dy <= WAKE_RADIUS * WAKE_RADIUS) wake(store, i);
+        }
+    }
+
+    /**
+     * Wakes a car up: it is steered and integrated again from the next tick.
+     */
+    void wake(CarStore store, int car) {
+        store.idleTicks[car] = 0;
+        if (!store.asleep[car]) return;
+        store.asleep[car] = false;
+        sleeping--;
+    }
+
+    void wakeAll(CarStore store) {
+        for (var i = 0; i < store.size(); i++) wake(store, i);
+    }
+
+    /**
+     * Counts the sleeping cars again, after the store was restored from a checkpoint.
+     */
+    void recount(CarStore store) {
+        sleeping = 0;
+        for (var i = 0; i < store.size(); i++) {
+            if (store.asleep[i]) sleeping++;
+        }
+    }
+
+    /**
+     * @return The number of sleeping cars.
+     */
+    int getSleeping() { return sleeping; }
+}
@@ -0,0 +1,134 @@
+package cars.engine;
+
+import java.awt.*;
+import java.util.Arrays;
+
+/**
+ * Copy of everything needed to draw one tick of a simulation.
+ * <p>
+ * Snapshots are filled by the simulation thread and handed to the render thread through a
+ * {@link SnapshotBuffer}, so rendering never touches the live car state. They are reused,
+ * so filling one does not allocate once its arrays are large enough.
+ */
+final class Snapshot {
+    long sequence = -1;         // publication order, -1 until the first publish
+    long tick;
+    double time;
+    long publishedNanos;        // System.nanoTime() when the snapshot was filled
+
+    double width;
+    double height;
+    String stats;               // simulation stats line, may be null
+    boolean hasClickPos;
+    double clickX;
+    double clickY;
+
+    int count = 0;
+    double[] px = new double[0];
+    double[] py = new double[0];
+    double[] ppx = new double[0];
+    double[] ppy = new double[0];
+    double[] vx = new double[0];
+    double[] vy = new double[0];
+    double[] fx = new double[0];
+    double[] fy = new double[0];
+    Color[] color = new Color[0];
+    boolean[] overrun = new boolean[0];     // steering overran its time budget
+    boolean[] asleep = new boolean[0];      // skipped by the simulation, see Sleep
+
+    private final Vector2 click = new Vector2();
+
+    /**
+     * Copies the current state of the simulation. Must run in the simulation thread, between ticks.
+     */
+    void copyFrom(Simulation simulation, String stats) {
+        this.stats = stats;
+        final var cars = simulation.getCars();
+        final var store = simulation.getStore();
+        count = cars.size();
+        ensureCapacity(count);
+
+        System.arraycopy(store.px, 0, px, 0, count);
+        System.arraycopy(store.py, 0, py, 0, count);
+        System.arraycopy(store.ppx, 0, ppx, 0, count);
+        System.arraycopy(store.ppy, 0, ppy, 0, count);
+        System.arraycopy(store.vx, 0, vx, 0, count);
+        System.arraycopy(store.vy, 0, vy, 0, count);
+        System.arraycopy(store.fx, 0, fx, 0, count);
+        System.arraycopy(store.fy, 0, fy, 0, count);
+        System.arraycopy(store.asleep, 0, asleep, 0, count);
+        for (var i = 0; i < count; i++) {
+            color[i] = cars.get(i).getColor();
+            overrun[i] = simulation.isOverrun(i);
+        }
+
+        tick = simulation.getTicks();
+        time = simulation.getTime();
+        width = simulation.getWidth();
+        height = simulation.getHeight();
+        hasClickPos = simulation.getClickPos(click) != null;
+        clickX = click.x;
+        clickY = click.y;
+        publishedNanos = System.nanoTime();
+    }
+
+    /**
+     * Copies the current frame of a replay. Must run in the thread that drives the replayer.
+     */
+    void copyFrom(Replayer replayer, String stats) {
+        this.stats = stats;
+        count = replayer.getCarCount();
+        ensureCapacity(count);
+
+        System.arraycopy(replayer.px, 0, px, 0, count);
+        System.arraycopy(replayer.py, 0, py, 0, count);
+        System.arraycopy(replayer.ppx, 0, ppx, 0, count);
+        System.arraycopy(replayer.ppy, 0, ppy, 0, count);
+        System.arraycopy(replayer.vx, 0, vx, 0, count);
+        System.arraycopy(replayer.vy, 0, vy, 0, count);
+        System.arraycopy(replayer.fx, 0, fx, 0, count);
+        System.arraycopy(replayer.fy, 0, fy, 0, count);
+        for (var i = 0; i < count; i++) color[i] = replayer.getColor(i);
+        Arrays.fill(overrun, 0, count, false);
+        // Sleep is not recorded
+        Arrays.fill(asleep, 0, count, false);
+
+        tick = replayer.getTick();
+        time = replayer.getTime();
+        width = replayer.getWidth();
+        height = replayer.getHeight();
+        hasClickPos = replayer.getClickPos(click) != null;
+        clickX = click.x;
+        clickY = click.y;
+        publishedNanos = System.nanoTime();
+    }
+
+    /**
+     * Finds where a car is drawn, between its previous and current position. Cars are not
+     * interpolated across a wrap around.
+     *
+     * @param alpha How far, from 0 to 1, rendering is between the last two ticks.
+     * @return out
+     */
+    Vector2 interpolate(int car, double alpha, Vector2 out) {
+        final var dx = px[car] - ppx[car];
+        final var dy = py[car] - ppy[car];
+        if (Math.abs(dx) >= Car.WRAP_MARGIN || Math.abs(dy) >= Car.WRAP_MARGIN) return out.set(px[car], py[car]);
+        return out.set(ppx[car] + dx * alpha, ppy[car] + dy * alpha);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= px.length) return;
+        px = Arrays.copyOf(px, capacity);
+        py = Arrays.copyOf(py, capacity);
+        ppx = Arrays.copyOf(ppx, capacity);
+        ppy = Arrays.copyOf(ppy, capacity);
+        vx = Arrays.copyOf(vx, capacity);
+        vy = Arrays.copyOf(vy, capacity);
+        fx = Arrays.copyOf(fx, capacity);
+        fy = Arrays.copyOf(fy, capacity);
+        color = Arrays.copyOf(color, capacity);
+        overrun = Arrays.copyOf(overrun, capacity);
+        asleep = Arrays.copyOf(asleep, capacity);
+    }
+}
@@ -0,0 +1,52 @@
+package cars.engine;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free triple buffer of snapshots, between one writer and one reader thread.
+ * <p>
+ * The writer fills its back snapshot and swaps it with the ready one. The reader swaps its
+ * front snapshot with the ready one whenever a newer snapshot was published. Each snapshot is
+ * owned by a single thread at any time, so neither side ever waits for the other.
+ */
+final class SnapshotBuffer {
+    private final AtomicReference<Snapshot> ready = new AtomicReference<>(new Snapshot());
+    private Snapshot back = new Snapshot();     // writer side
+    private Snapshot front = new Snapshot();    // reader side
+    private long published = 0;                 // writer side
+
+    /**
+     * Writer side: fills the back snapshot with the simulation state and publishes it.
+     *
+     * @param stats Simulation stats line to show, may be null.
+     */
+    void publish(Simulation simulation, String stats) {
+        back.copyFrom(simulation, stats);
+        swap();
+    }
+
+    /**
+     * Writer side: fills the back snapshot with the current replay frame and publishes it.
+     */
+    void publish(Replayer replayer, String stats) {
+        back.copyFrom(replayer, stats);
+        swap();
+    }
+
+    private void swap() {
+        // Replays may go back in time, so snapshots are ordered by publication, not by tick
+        back.sequence = published++;
+        back = ready.getAndSet(back);
+    }
+
+    /**
+     * Reader side: returns the newest published snapshot.
+     * It belongs to the reader until the next call.
+     */
+    Snapshot latest() {
+        if (ready.get().sequence > front.sequence) {
+            front = ready.getAndSet(front);
+        }
+        return front;
+    }
+}
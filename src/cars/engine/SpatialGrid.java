@@ -0,0 +1,324 @@
+package cars.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Uniform grid over the world used to answer radius queries without scanning every car.
+ * <p>
+ * The grid covers the toroidal area used by {@link Car}, including the wrap margin.
+ * Positions outside that area are clamped into the border cells, so queries stay exact
+ * for any position: the grid only prunes candidates, the final test is the same squared
+ * distance check done by the brute-force scan.
+ * <p>
+ * Cars do not move while steering is computed, so the grid is rebuilt once per tick and is
+ * read-only afterwards: it can be queried from many threads at once. Cars are stored sorted
+ * by cell (a counting sort), so each cell is a contiguous run of car indexes.
+ */
+final class SpatialGrid {
+    private static final double MIN_CELL_SIZE = 32;
+    private static final int MAX_CELLS_PER_AXIS = 256;
+    private static final int CARS_PER_CELL = 2;
+
+    /**
+     * Receives the candidate pairs found by {@link #forEachPair(PairConsumer)}.
+     */
+    interface PairConsumer {
+        void accept(int a, int b);
+    }
+
+    private final double minCellSize;
+    private List<Car> cars = List.of();
+    private double minX;
+    private double minY;
+    private double cellSize = MIN_CELL_SIZE;
+    private int cols = 1;
+    private int rows = 1;
+
+    private int[] cellStart = new int[2];   // cell c holds items[cellStart[c]..cellStart[c + 1])
+    private int[] items = new int[0];
+    private int[] cellOf = new int[0];
+
+    SpatialGrid() {
+        this(MIN_CELL_SIZE);
+    }
+
+    /**
+     * @param minCellSize Smallest cell size. Pairs closer than it are always in the same or in
+     *                    adjacent cells.
+     */
+    SpatialGrid(double minCellSize) {
+        this.minCellSize = minCellSize;
+        this.cellSize = minCellSize;
+    }
+
+    /**
+     * Re-indexes all cars. Must be called once per tick, before any query.
+     */
+    void rebuild(List<Car> cars, double width, double height) {
+        this.cars = cars;
+        final var n = cars.size();
+        layout(n, width, height);
+        for (var i = 0; i < n; i++) {
+            final var car = cars.get(i);
+            place(i, car.getPositionX(), car.getPositionY());
+        }
+        sort(n);
+    }
+
+    /**
+     * Indexes bare positions, e.g. those of a {@link Snapshot}. Only {@link #inRect} can be
+     * queried afterwards, as there are no cars to return.
+     */
+    void rebuild(double[] px, double[] py, int n, double width, double height) {
+        this.cars = List.of();
+        layout(n, width, height);
+        for (var i = 0; i < n; i++) place(i, px[i], py[i]);
+        sort(n);
+    }
+
+    private void layout(int n, double width, double height) {
+        final var halfW = width / 2.0 + Car.WRAP_MARGIN;
+        final var halfH = height / 2.0 + Car.WRAP_MARGIN;
+        minX = -halfW;
+        minY = -halfH;
+
+        // Aim for a few cars per cell, but never use tiny or too many cells
+        final var area = 4.0 * halfW * halfH;
+        cellSize = Math.max(minCellSize, Math.sqrt(area * CARS_PER_CELL / Math.max(n, 1)));
+        cols = Math.clamp((long) Math.ceil(2 * halfW / cellSize), 1, MAX_CELLS_PER_AXIS);
+        rows = Math.clamp((long) Math.ceil(2 * halfH / cellSize), 1, MAX_CELLS_PER_AXIS);
+        cellSize = Math.max(cellSize, Math.max(2 * halfW / cols, 2 * halfH / rows));
+
+        final var cells = cols * rows;
+        if (cellStart.length < cells + 1) cellStart = new int[cells + 1];
+        Arrays.fill(cellStart, 0, cells + 1, 0);
+        if (items.length < n) {
+            items = new int[n];
+            cellOf = new int[n];
+        }
+    }
+
+    private void place(int i, double x, double y) {
+        final var cell = cell(x, y);
+        cellOf[i] = cell;
+        cellStart[cell]++;
+    }
+
+    // Counting sort of the indexes by cell, keeping list order inside each cell
+    private void sort(int n) {
+        final var cells = cols * rows;
+        for (var c = 1; c <= cells; c++) {
+            cellStart[c] += cellStart[c - 1];
+        }
+        for (var i = n - 1; i >= 0; i--) {
+            items[--cellStart[cellOf[i]]] = i;
+        }
+    }
+
+    /**
+     * Collects the indexes of the cars in the cells that overlap the rectangle: all cars inside
+     * it, and some just outside. Cars out of the indexed area count as in its border cells.
+     *
+     * @param out Receives the indexes, in no particular order. Must have room for all cars.
+     * @return The number of indexes collected.
+     */
+    int inRect(double minX, double minY, double maxX, double maxY, int[] out) {
+        if (minX > maxX || minY > maxY) return 0;
+        final var c0 = column(minX);
+        final var c1 = column(maxX);
+        final var r0 = row(minY);
+        final var r1 = row(maxY);
+        var count = 0;
+        for (var r = r0; r <= r1; r++) {
+            // Cells of a row are contiguous
+            final var start = cellStart[r * cols + c0];
+            final var end = cellStart[r * cols + c1 + 1];
+            System.arraycopy(items, start, out, count, end - start);
+            count += end - start;
+        }
+        return count;
+    }
+
+    /**
+     * Passes every pair of positions in the same or in adjacent cells to the consumer, once each.
+     * This includes all pairs closer than the minimum cell size. Each cell is paired with itself
+     * and with the four neighbors after it (right, and the three below), so no pair is seen
+     * twice. The order only depends on the indexed positions.
+     * <p>
+     * Pairs are given as slots, the places of the indexes sorted by cell: see {@link #itemAt(int)}.
+     * Cars close to each other have close slots, so data copied in slot order is read from
+     * nearby memory.
+     */
+    void forEachPair(PairConsumer consumer) {
+        for (var r = 0; r < rows; r++) {
+            for (var c = 0; c < cols; c++) {
+                final var cell = r * cols + c;
+                final var start = cellStart[cell];
+                final var end = cellStart[cell + 1];
+                if (start == end) continue;
+                for (var i = start; i < end; i++) {
+                    for (var j = i + 1; j < end; j++) consumer.accept(i, j);
+                }
+                if (c + 1 < cols) pairCells(start, end, cell + 1, consumer);
+                if (r + 1 < rows) {
+                    final var below = cell + cols;
+                    if (c > 0) pairCells(start, end, below - 1, consumer);
+                    pairCells(start, end, below, consumer);
+                    if (c + 1 < cols) pairCells(start, end, below + 1, consumer);
+                }
+            }
+        }
+    }
+
+    private void pairCells(int start, int end, int other, PairConsumer consumer) {
+        final var otherStart = cellStart[other];
+        final var otherEnd = cellStart[other + 1];
+        for (var i = start; i < end; i++) {
+            for (var j = otherStart; j < otherEnd; j++) consumer.accept(i, j);
+        }
+    }
+
+    /**
+     * @return The index at the given slot, from 0 to the indexed count, in cell order.
+     */
+    int itemAt(int slot) { return items[slot]; }
+
+    /**
+     * Returns the cars, other than current, within radius of the current car, in list order.
+     */
+    List<Car> neighbors(Car current, double radius) {
+        if (radius < 0) return List.of();
+        final var x = current.getPositionX();
+        final var y = current.getPositionY();
+        final var radiusSqr = radius * radius;
+
+        final var c0 = column(x - radius);
+        final var c1 = column(x + radius);
+        final var r0 = row(y - radius);
+        final var r1 = row(y + radius);
+
+        final var scratch = NeighborScratch.get();
+        var found = scratch.indexes(0);
+        var count = 0;
+        for (var r = r0; r <= r1; r++) {
+            for (var c = c0; c <= c1; c++) {
+                final var cell = r * cols + c;
+                for (var k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                    final var i = items[k];
+                    final var car = cars.get(i);
+                    if (car == current) continue;
+                    final var dx = x - car.getPositionX();
+                    final var dy = y - car.getPositionY();
+                    if (dx * dx + dy * dy > radiusSqr) continue;
+
+                    if (count == found.length) found = scratch.indexes(count + 1);
+                    found[count++] = i;
+                }
+            }
+        }
+
+        // Keep the brute-force scan order
+        Arrays.sort(found, 0, count);
+        final var result = new ArrayList<Car>(count);
+        for (var k = 0; k < count; k++) result.add(cars.get(found[k]));
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Calls action for each car, other than current, within radius of the current car, in cell
+     * order. If action is null, just counts them.
+     *
+     * @return The number of cars visited.
+     */
+    int forEach(Car current, double radius, NeighborConsumer action) {
+        if (radius < 0) return 0;
+        final var x = current.getPositionX();
+        final var y = current.getPositionY();
+        final var radiusSqr = radius * radius;
+
+        final var c0 = column(x - radius);
+        final var c1 = column(x + radius);
+        final var r0 = row(y - radius);
+        final var r1 = row(y + radius);
+
+        var count = 0;
+        for (var r = r0; r <= r1; r++) {
+            for (var c = c0; c <= c1; c++) {
+                final var cell = r * cols + c;
+                for (var k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                    final var car = cars.get(items[k]);
+                    if (car == current) continue;
+                    final var dx = x - car.getPositionX();
+                    final var dy = y - car.getPositionY();
+                    final var distSqr = dx * dx + dy * dy;
+                    if (distSqr > radiusSqr) continue;
+
+                    if (action != null) action.accept(car, distSqr);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Offers to out the cars, other than current, nearest to the current car.
+     * <p>
+     * Cells are searched in rings around the car's cell, stopping once a ring is farther than
+     * the k-th car found (or the maximum radius of out). A car in ring r is at least r - 1 cells
+     * away, clamped border cells included, so no nearer car is missed.
+     */
+    void nearest(Car current, NearestCars out) {
+        final var x = current.getPositionX();
+        final var y = current.getPositionY();
+        final var col = column(x);
+        final var row = row(y);
+
+        final var rings = Math.max(cols, rows);
+        for (var ring = 0; ring <= rings; ring++) {
+            final var reach = Math.max(ring - 1, 0) * cellSize;
+            if (reach * reach > out.limitSqr()) return;
+
+            final var r0 = row - ring;
+            final var r1 = row + ring;
+            final var c0 = col - ring;
+            final var c1 = col + ring;
+            for (var r = Math.max(r0, 0); r <= Math.min(r1, rows - 1); r++) {
+                if (r == r0 || r == r1) {
+                    for (var c = Math.max(c0, 0); c <= Math.min(c1, cols - 1); c++) {
+                        offer(r * cols + c, current, x, y, out);
+                    }
+                } else {
+                    if (c0 >= 0) offer(r * cols + c0, current, x, y, out);
+                    if (c1 < cols) offer(r * cols + c1, current, x, y, out);
+                }
+            }
+        }
+    }
+
+    private void offer(int cell, Car current, double x, double y, NearestCars out) {
+        for (var k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+            final var i = items[k];
+            final var car = cars.get(i);
+            if (car == current) continue;
+            final var dx = x - car.getPositionX();
+            final var dy = y - car.getPositionY();
+            out.offer(car, i, dx * dx + dy * dy);
+        }
+    }
+
+    private int column(double x) {
+        return (int) Math.clamp(Math.floor((x - minX) / cellSize), 0, cols - 1);
+    }
+
+    private int row(double y) {
+        return (int) Math.clamp(Math.floor((y - minY) / cellSize), 0, rows - 1);
+    }
+
+    private int cell(double x, double y) {
+        return row(y) * cols + column(x);
+    }
+}
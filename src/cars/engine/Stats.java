@@ -0,0 +1,143 @@
+package cars.engine;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-tick timings of a simulation, kept as latency histograms in nanoseconds.
+ * <p>
+ * Records the whole tick, the grid rebuild, the steering phase (also per {@link Car} subclass),
+ * the integration, the neighbor queries done through {@link World}, the bytes allocated and the
+ * cars that overran their steering budget per tick. When collisions are on, it also records the
+ * time of the collision phase and the pairs of cars in contact per tick, and when sleeping is on,
+ * the sleeping cars per tick. Viewers may record their own metrics, such as drawing, in a separate instance.
+ * <p>
+ * Not thread safe: a simulation records only from the thread that steps it.
+ */
+public final class Stats {
+    public static final String TICK = "tick";
+    public static final String GRID = "grid";
+    public static final String STEERING = "steering";
+    public static final String INTEGRATION = "integration";
+    public static final String NEIGHBORS = "neighbors";
+    public static final String ALLOCATED_BYTES = "allocatedBytes";
+    public static final String OVERRUNS = "overruns";
+    public static final String COLLISION = "collision";
+    public static final String COLLISIONS = "collisions";
+    public static final String SLEEPING = "sleeping";
+
+    private static final com.sun.management.ThreadMXBean THREADS = allocationBean();
+
+    private final Map<String, Histogram> metrics = new LinkedHashMap<>();
+    private final Map<Class<?>, Histogram> steeringByClass = new LinkedHashMap<>();
+    private final Map<Class<?>, Long> overrunsByClass = new LinkedHashMap<>();
+
+    /**
+     * @return The histogram of the given metric, created empty on first use.
+     */
+    public Histogram get(String metric) {
+        return metrics.computeIfAbsent(metric, m -> new Histogram());
+    }
+
+    /**
+     * @return Steering time histograms, per car class.
+     */
+    public Map<Class<?>, Histogram> getSteeringByClass() {
+        return steeringByClass;
+    }
+
+    void recordSteering(Class<?> carClass, long nanos) {
+        steeringByClass.computeIfAbsent(carClass, c -> new Histogram()).record(nanos);
+    }
+
+    /**
+     * @return How many times cars of each class overran their steering budget.
+     * @see Simulation#setSteeringBudget(long)
+     */
+    public Map<Class<?>, Long> getOverrunsByClass() {
+        return overrunsByClass;
+    }
+
+    void recordOverrun(Class<?> carClass) {
+        overrunsByClass.merge(carClass, 1L, Long::sum);
+    }
+
+    /**
+     * @return The car class with the highest mean steering time, or null if nothing was recorded.
+     */
+    public Class<?> getSlowestCarClass() {
+        Class<?> slowest = null;
+        var slowestMean = -1.0;
+        for (final var entry : steeringByClass.entrySet()) {
+            if (entry.getValue().getMean() > slowestMean) {
+                slowest = entry.getKey();
+                slowestMean = entry.getValue().getMean();
+            }
+        }
+        return slowest;
+    }
+
+    public void reset() {
+        metrics.values().forEach(Histogram::reset);
+        steeringByClass.values().forEach(Histogram::reset);
+        overrunsByClass.clear();
+    }
+
+    /**
+     * Writes one line per metric, with times in nanoseconds (bytes for allocations).
+     */
+    public void writeCsv(Appendable out) throws IOException {
+        out.append("metric,count,min,p50,p90,p99,max,mean\n");
+        for (final var entry : allMetrics().entrySet()) {
+            final var h = entry.getValue();
+            out.append("%s,%d,%d,%d,%d,%d,%d,%.1f\n".formatted(
+                entry.getKey(), h.getCount(), h.getMin(),
+                h.getValueAtPercentile(50), h.getValueAtPercentile(90), h.getValueAtPercentile(99),
+                h.getMax(), h.getMean()
+            ));
+        }
+    }
+
+    /**
+     * Writes all metrics as a JSON object, with times in nanoseconds (bytes for allocations).
+     */
+    public void writeJson(Appendable out) throws IOException {
+        out.append("{");
+        var first = true;
+        for (final var entry : allMetrics().entrySet()) {
+            final var h = entry.getValue();
+            out.append(first ? "\n" : ",\n");
+            out.append("  \"%s\": {\"count\": %d, \"min\": %d, \"p50\": %d, \"p90\": %d, \"p99\": %d, \"max\": %d, \"mean\": %.1f}".formatted(
+                entry.getKey().replace("\"", "\\\""), h.getCount(), h.getMin(),
+                h.getValueAtPercentile(50), h.getValueAtPercentile(90), h.getValueAtPercentile(99),
+                h.getMax(), h.getMean()
+            ));
+            first = false;
+        }
+        out.append("\n}\n");
+    }
+
+    private Map<String, Histogram> allMetrics() {
+        final var all = new LinkedHashMap<>(metrics);
+        steeringByClass.forEach((carClass, h) -> all.put(STEERING + "." + carClass.getName(), h));
+        return all;
+    }
+
+    /**
+     * @return Bytes allocated so far by the current thread, or 0 if the JVM can't tell.
+     */
+    static long allocatedBytes() {
+        return THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+            && bean.isThreadAllocatedMemorySupported()) {
+            bean.setThreadAllocatedMemoryEnabled(true);
+            return bean;
+        }
+        return null;
+    }
+}
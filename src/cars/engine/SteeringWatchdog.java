@@ -0,0 +1,272 @@
+package cars.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import static cars.engine.Vector2.vec2;
+
+/**
+ * Computes the steering of every car under a time budget, so one slow or looping car can't
+ * stall the whole simulation.
+ * <p>
+ * Cars are claimed one at a time by a pool of daemon worker threads. The simulation waits until
+ * every car has finished, or has been running for longer than the budget, however long the
+ * cars waiting for a worker take to start. Overrunning cars keep the steering force of their
+ * last completed tick, and are skipped while their steering is still running; a result that
+ * arrives late is dropped. Only when every worker is stuck, and no more can be started, cars
+ * that could not start keep their last steering too, without counting as overruns.
+ * <p>
+ * Java can't stop a thread, so a worker stuck in a car is replaced by a new one, up to a limit.
+ * Platform threads are used rather than virtual threads: a car spinning in a loop never yields,
+ * so it would hold its carrier thread forever, while the OS keeps time slicing platform threads.
+ */
+final class SteeringWatchdog {
+    // Car states
+    private static final int IDLE = 0;          // nothing to do
+    private static final int QUEUED = 1;        // to be steered this tick
+    private static final int RUNNING = 2;
+    private static final int DONE = 3;          // finished, result not collected yet
+    private static final int ABANDONED = 4;     // overran, its result will be dropped
+
+    private static final int WORKERS = Runtime.getRuntime().availableProcessors();
+    private static final int MAX_WORKERS = 4 * WORKERS;
+
+    private final World[] worlds;
+    private final long budgetNanos;
+    private SteeringWatchdog previous;          // replaced watchdog with cars still running, or null
+
+    private final AtomicIntegerArray state;
+    private final AtomicLongArray startNanos;
+    private final Vector2[] results;
+    private final boolean[] steered;
+    private final Throwable[] failures;
+    private final boolean[] overran;            // simulation thread only
+    private final boolean[] deferred;           // simulation thread only
+
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger stuck = new AtomicInteger();
+    private volatile Thread[] workers = new Thread[0];
+    private volatile long generation = 0;
+    private volatile Thread waiter;
+    private volatile boolean stopped = false;
+
+    /**
+     * @param previous The watchdog this one replaces, or null. Cars it is still running stay busy
+     *                 until its workers return.
+     */
+    SteeringWatchdog(World[] worlds, long budgetNanos, SteeringWatchdog previous) {
+        if (budgetNanos <= 0) {
+            throw new IllegalArgumentException("budgetNanos must be greater than 0");
+        }
+        this.worlds = worlds;
+        this.budgetNanos = budgetNanos;
+        this.previous = previous;
+        final var n = worlds.length;
+        state = new AtomicIntegerArray(n);
+        startNanos = new AtomicLongArray(n);
+        results = new Vector2[n];
+        for (var i = 0; i < n; i++) results[i] = vec2();
+        steered = new boolean[n];
+        failures = new Throwable[n];
+        overran = new boolean[n];
+        deferred = new boolean[n];
+        for (var w = 0; w < Math.min(WORKERS, Math.max(n, 1)); w++) startWorker();
+    }
+
+    long getBudgetNanos() { return budgetNanos; }
+
+    /**
+     * @return True if the car overran the budget in the last tick, or was still busy with an
+     * older one.
+     */
+    boolean overran(int car) { return overran[car]; }
+
+    /**
+     * @return True if the car was not steered in the last tick because every worker was stuck
+     * in other cars. It kept its last steering, but did not overrun.
+     */
+    boolean deferred(int car) { return deferred[car]; }
+
+    /**
+     * @return True while a worker is still computing the steering of an earlier tick.
+     * Such cars must not have their world updated.
+     */
+    boolean isBusy(int car) {
+        final var s = state.get(car);
+        return s == RUNNING || s == ABANDONED || previous != null && previous.isBusy(car);
+    }
+
+    /**
+     * @return True if no worker, of this watchdog or of the ones it replaced, is still stuck in a car.
+     */
+    boolean isIdle() {
+        return stuck.get() == 0 && (previous == null || previous.isIdle());
+    }
+
+    /**
+     * Steers all cars that are not busy and applies the forces that arrived in time.
+     * Runs in the simulation thread.
+     *
+     * @param asleep Cars to leave alone this tick.
+     * @return The number of cars that overran.
+     */
+    int steerAll(boolean[] asleep) {
+        if (previous != null && previous.isIdle()) previous = null;
+        final var n = worlds.length;
+        var queued = 0;
+        for (var i = 0; i < n; i++) {
+            deferred[i] = false;
+            if (asleep[i]) {
+                overran[i] = false;
+            } else if ((previous == null || !previous.isBusy(i)) && state.compareAndSet(i, IDLE, QUEUED)) {
+                overran[i] = false;
+                queued++;
+            } else {
+                overran[i] = true;
+            }
+        }
+
+        final var start = System.nanoTime();
+        waiter = Thread.currentThread();
+        pending.addAndGet(queued);
+        next.set(0);
+        generation++;
+        for (final var worker : workers) LockSupport.unpark(worker);
+
+        await(start);
+        return collect(asleep);
+    }
+
+    private void await(long start) {
+        var wake = start + budgetNanos;
+        while (pending.get() > 0) {
+            final var now = System.nanoTime();
+            if (now - wake < 0) {
+                LockSupport.parkNanos(this, wake - now);
+                continue;
+            }
+
+            // Give up on cars over budget, and wake again when the next running one would be
+            wake = now + budgetNanos;
+            for (var i = 0; i < worlds.length; i++) {
+                if (overran[i] || state.get(i) != RUNNING) continue;
+                // A car can't have started before this tick
+                final var end = Math.max(startNanos.get(i), start) + budgetNanos;
+                if (now - end >= 0) {
+                    abandon(i);
+                } else if (end - wake < 0) {
+                    wake = end;
+                }
+            }
+            // Cars still queued could only start when a stuck worker returns
+            if (stuck.get() >= workers.length) return;
+        }
+    }
+
+    private void abandon(int car) {
+        if (!state.compareAndSet(car, RUNNING, ABANDONED)) return;
+        overran[car] = true;
+        pending.decrementAndGet();
+        // Its worker is lost until the car returns, keep enough of them working
+        if (workers.length - stuck.incrementAndGet() < WORKERS && workers.length < MAX_WORKERS) {
+            startWorker();
+        }
+    }
+
+    private int collect(boolean[] asleep) {
+        Throwable failure = null;
+        var overruns = 0;
+        for (var i = 0; i < worlds.length; i++) {
+            if (asleep[i]) continue;
+            if (overran[i]) {
+                overruns++;
+                continue;
+            }
+            if (state.compareAndSet(i, QUEUED, IDLE)) {
+                // Never started, every worker was stuck
+                pending.decrementAndGet();
+                deferred[i] = true;
+                continue;
+            }
+            abandon(i);
+            if (overran[i]) {
+                overruns++;
+                continue;
+            }
+
+            // Finished in time
+            if (failures[i] != null) {
+                if (failure == null) failure = failures[i];
+                failures[i] = null;
+            } else {
+                worlds[i].getCurrent().setSteering(steered[i] ? results[i] : null);
+            }
+            state.set(i, IDLE);
+        }
+
+        // Like the fork join steering, the failure of a car stops the tick, once all cars are collected
+        if (failure instanceof RuntimeException e) throw e;
+        if (failure instanceof Error e) throw e;
+        if (failure != null) throw new IllegalStateException(failure);
+        return overruns;
+    }
+
+    /**
+     * Stops the idle workers. Workers stuck in a car stop when it returns, and until then
+     * {@link #isBusy(int)} keeps telling so.
+     */
+    void stop() {
+        stopped = true;
+        for (final var worker : workers) LockSupport.unpark(worker);
+    }
+
+    private void startWorker() {
+        final var worker = new Thread(this::work, "steering-" + workers.length);
+        worker.setDaemon(true);
+        workers = Arrays.copyOf(workers, workers.length + 1);
+        workers[workers.length - 1] = worker;
+        worker.start();
+    }
+
+    private void work() {
+        var seen = 0L;
+        while (!stopped) {
+            final var current = generation;
+            if (current == seen) {
+                LockSupport.park(this);
+                continue;
+            }
+            seen = current;
+            // Claiming through the car state, so a worker late from the last tick can't take a car twice
+            for (var i = next.getAndIncrement(); i < worlds.length; i = next.getAndIncrement()) {
+                if (state.get(i) != QUEUED) continue;
+                // Stamped before the car shows as running, so the wait never reads an older start
+                startNanos.set(i, System.nanoTime());
+                if (state.compareAndSet(i, QUEUED, RUNNING)) steer(i);
+            }
+        }
+    }
+
+    private void steer(int car) {
+        try {
+            final var steering = worlds[car].calculateSteering();
+            steered[car] = steering != null;
+            if (steering != null) results[car].set(steering);
+        } catch (Throwable t) {
+            failures[car] = t;
+        }
+
+        if (state.compareAndSet(car, RUNNING, DONE)) {
+            if (pending.decrementAndGet() == 0) LockSupport.unpark(waiter);
+        } else {
+            // Abandoned: drop the late result, and count this worker back in
+            failures[car] = null;
+            state.set(car, IDLE);
+            stuck.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package cars.engine;
+
+/**
+ * Decides how many fixed ticks the {@link Window} runs, from the wall clock: pause, single
+ * steps and a speed from {@link #MIN_SPEED} to {@link #MAX_SPEED} times real time.
+ * <p>
+ * The simulation always steps by its own dt, so results do not depend on the speed or on the
+ * frame rate. Each call to {@link #advance(long)} turns the wall time since the last one, times
+ * the speed, into whole ticks, keeping the remainder for later:
+ * <ul>
+ *     <li>the wall time counted at once is capped at {@link #MAX_ELAPSED_NANOS}, so a stall, like
+ *     a GC pause or dragging the window, does not turn into a burst of ticks;</li>
+ *     <li>the ticks of one call must fit in the wall time that passed, at the measured cost of a
+ *     tick. When the simulation can't keep up, the time it has no room for is dropped instead
+ *     of piling up, so it runs slower than asked but never falls further and further behind.</li>
+ * </ul>
+ * Input events change it in the event dispatch thread while the simulation thread advances it,
+ * so every method is synchronized. They are all short.
+ */
+final class TimeController {
+    static final double MIN_SPEED = 0.1;
+    static final double MAX_SPEED = 64;
+    private static final double[] SPEEDS = {MIN_SPEED, 0.25, 0.5, 1, 2, 4, 8, 16, 32, MAX_SPEED};
+
+    // Longest wall time counted by one advance
+    static final long MAX_ELAPSED_NANOS = 250_000_000L;
+    // Wait between advances while paused, to notice inputs
+    private static final long PAUSED_POLL_NANOS = 10_000_000L;
+    // Weight of the last batch in the tick cost average
+    private static final double COST_SMOOTHING = 0.2;
+
+    private final double dtNanos;
+    private double speed = 1;
+    private boolean paused = false;
+    private int pendingSteps = 0;
+
+    private long last;
+    private double backlogNanos = 0;        // simulated time still to step
+    private double tickCostNanos = 0;       // wall time per tick, 0 until measured
+
+    // Achieved speed, measured by sample()
+    private long sampleStart;
+    private double sampleSteppedNanos = 0;
+    private double achievedSpeed = 1;
+
+    /**
+     * @param dtNanos Simulated time of one tick.
+     */
+    TimeController(double dtNanos) {
+        if (!(dtNanos > 0)) {
+            throw new IllegalArgumentException("dtNanos must be greater than 0");
+        }
+        this.dtNanos = dtNanos;
+    }
+
+    /**
+     * Starts counting time from now, forgetting any time still to step.
+     */
+    synchronized void start(long now) {
+        last = now;
+        sampleStart = now;
+        backlogNanos = 0;
+        sampleSteppedNanos = 0;
+    }
+
+    /**
+     * @return The number of ticks to run now.
+     */
+    synchronized int advance(long now) {
+        final var elapsed = Math.min(now - last, MAX_ELAPSED_NANOS);
+        last = now;
+        if (paused) {
+            backlogNanos = 0;
+            final var steps = pendingSteps;
+            pendingSteps = 0;
+            return steps;
+        }
+
+        backlogNanos += elapsed * speed;
+        var ticks = (long) (backlogNanos / dtNanos);
+        if (tickCostNanos > 0) {
+            // No more ticks than fit in the time that passed, at least one to make progress
+            final var affordable = Math.max(1, (long) (elapsed / tickCostNanos));
+            if (ticks > affordable) {
+                backlogNanos -= (ticks - affordable) * dtNanos;
+                ticks = affordable;
+            }
+        }
+        backlogNanos -= ticks * dtNanos;
+        return (int) ticks;
+    }
+
+    /**
+     * Reports the wall time the ticks of the last advance took.
+     */
+    synchronized void stepped(int ticks, long wallNanos) {
+        if (ticks <= 0) return;
+        final var cost = (double) wallNanos / ticks;
+        tickCostNanos = tickCostNanos == 0 ? cost : tickCostNanos + (cost - tickCostNanos) * COST_SMOOTHING;
+        sampleSteppedNanos += ticks * dtNanos;
+    }
+
+    /**
+     * @return Wall time until the next tick is due.
+     */
+    synchronized long nanosToNextTick() {
+        if (paused) return PAUSED_POLL_NANOS;
+        return (long) Math.max(0, (dtNanos - backlogNanos) / speed);
+    }
+
+    /**
+     * @return Wall time between two ticks at the current speed, or 0 while paused.
+     */
+    synchronized double getTickWallNanos() {
+        return paused ? 0 : dtNanos / speed;
+    }
+
+    /**
+     * Measures the simulated time per wall time since the last sample.
+     *
+     * @return The achieved speed, lower than {@link #getSpeed()} when time was dropped.
+     */
+    synchronized double sample(long now) {
+        final var wall = now - sampleStart;
+        if (wall > 0) achievedSpeed = sampleSteppedNanos / wall;
+        sampleStart = now;
+        sampleSteppedNanos = 0;
+        return achievedSpeed;
+    }
+
+    synchronized double getAchievedSpeed() { return achievedSpeed; }
+
+    synchronized void togglePause() {
+        paused = !paused;
+        pendingSteps = 0;
+    }
+
+    synchronized boolean isPaused() { return paused; }
+
+    /**
+     * Pauses, if running, and runs a single tick.
+     */
+    synchronized void step() {
+        paused = true;
+        pendingSteps++;
+    }
+
+    synchronized double getSpeed() { return speed; }
+
+    /**
+     * @throws IllegalArgumentException If speed is out of the {@link #MIN_SPEED} to
+     *                                  {@link #MAX_SPEED} range.
+     */
+    synchronized void setSpeed(double speed) {
+        if (!(speed >= MIN_SPEED && speed <= MAX_SPEED)) {
+            throw new IllegalArgumentException("speed must be between " + MIN_SPEED + " and " + MAX_SPEED);
+        }
+        this.speed = speed;
+    }
+
+    /**
+     * Goes to the next faster speed of the ladder, up to {@link #MAX_SPEED}.
+     */
+    synchronized void faster() {
+        for (final var s : SPEEDS) {
+            if (s > speed) {
+                speed = s;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Goes to the next slower speed of the ladder, down to {@link #MIN_SPEED}.
+     */
+    synchronized void slower() {
+        for (var i = SPEEDS.length - 1; i >= 0; i--) {
+            if (SPEEDS[i] < speed) {
+                speed = SPEEDS[i];
+                return;
+            }
+        }
+    }
+}
@@ -16,8 +16,22 @@ import static java.lang.Double.isNaN;
  * </ul>
  * Class methods returns the vector itself, allowing invocation chaining e.g.:
  * <code>v1.add(v2).normalize();</code>
+ * <p>
+ * Hot paths should avoid creating vectors every frame. They can either reuse a vector with the
+ * class methods (<code>out.set(v1).add(v2)</code>) or call the static overloads that receive an
+ * <code>out</code> parameter, which store the result there instead of creating a new vector.
+ * The <code>out</code> vector may be one of the operands.
+ * <p>
+ * Angles can be avoided altogether: a unit direction is a rotation, so {@link #rotate(Vector2)}
+ * and {@link #unrotate(Vector2)} move vectors in and out of a car's local frame with no
+ * trigonometry. The methods that do need it ({@link #byAngle(double)}, {@link #rotate(double)}
+ * and the angle of a vector) use {@link FastMath} instead of {@link Math} when fast math is on,
+ * see {@link #setFastMath(boolean)}.
  */
 public final class Vector2 implements Cloneable {
+    // May be turned on with -Dcars.fastMath=true
+    private static volatile boolean fastMath = Boolean.getBoolean("cars.fastMath");
+
     public double x;
     public double y;
 
@@ -64,7 +78,26 @@ public final class Vector2 implements Cloneable {
      * @see Vector2#byAngleSize(double, double)
      */
     public static Vector2 byAngle(double angle) {
-        return new Vector2(Math.cos(angle), Math.sin(angle));
+        return new Vector2(cos(angle), sin(angle));
+    }
+
+    /**
+     * Makes {@link #byAngle(double)}, {@link #rotate(double)} and the vector angle use the
+     * approximations of {@link FastMath}, within its documented error, instead of {@link Math}.
+     * Off by default. Since it changes results, it should be set before a simulation starts.
+     */
+    public static void setFastMath(boolean fast) {
+        fastMath = fast;
+    }
+
+    public static boolean isFastMath() { return fastMath; }
+
+    private static double sin(double radians) {
+        return fastMath ? FastMath.sin(radians) : Math.sin(radians);
+    }
+
+    private static double cos(double radians) {
+        return fastMath ? FastMath.cos(radians) : Math.cos(radians);
     }
 
     /**
@@ -87,6 +120,17 @@ public final class Vector2 implements Cloneable {
         return vector.clone().normalize();
     }
 
+    /**
+     * Normalizes the given vector into out.
+     *
+     * @param vector The vector to normalize.
+     * @param out    Vector that receives the result.
+     * @return out
+     */
+    public static Vector2 normalize(Vector2 vector, Vector2 out) {
+        return out.set(vector).normalize();
+    }
+
     /**
      * Negates the given vector
      *
@@ -97,6 +141,28 @@ public final class Vector2 implements Cloneable {
         return vector.clone().negate();
     }
 
+    /**
+     * Negates the given vector into out.
+     *
+     * @param vector Vector to negate
+     * @param out    Vector that receives the result.
+     * @return out
+     */
+    public static Vector2 negate(Vector2 vector, Vector2 out) {
+        return out.set(vector).negate();
+    }
+
+    /**
+     * Adds two vectors. Same as {@link #add(Vector2, Vector2...)}, without creating the varargs array.
+     *
+     * @param v1 The first vector
+     * @param v2 The second vector
+     * @return The addition result.
+     */
+    public static Vector2 add(Vector2 v1, Vector2 v2) {
+        return new Vector2(v1.x + v2.x, v1.y + v2.y);
+    }
+
     /**
      * Adds vectors together.
      *
@@ -110,6 +176,17 @@ public final class Vector2 implements Cloneable {
         return result;
     }
 
+    /**
+     * Subtracts two vectors. Same as {@link #subtract(Vector2, Vector2...)}, without creating the varargs array.
+     *
+     * @param v1 The first vector
+     * @param v2 The vector to subtract
+     * @return The subtraction result.
+     */
+    public static Vector2 subtract(Vector2 v1, Vector2 v2) {
+        return new Vector2(v1.x - v2.x, v1.y - v2.y);
+    }
+
     /**
      * Subtracts vectors.
      *
@@ -158,6 +235,18 @@ public final class Vector2 implements Cloneable {
         return vector.clone().multiply(scalar);
     }
 
+    /**
+     * Multiplies the vector by the given scalar into out.
+     *
+     * @param vector The vector to multiply
+     * @param scalar The scalar
+     * @param out    Vector that receives the result.
+     * @return out
+     */
+    public static Vector2 multiply(Vector2 vector, double scalar, Vector2 out) {
+        return out.set(vector).multiply(scalar);
+    }
+
     /**
      * Elevate each vector component by a given potency.
      *
@@ -181,6 +270,18 @@ public final class Vector2 implements Cloneable {
         return vector.clone().divide(scalar);
     }
 
+    /**
+     * Divides the vector by the given scalar into out.
+     *
+     * @param vector The vector to divide
+     * @param scalar The scalar.
+     * @param out    Vector that receives the result.
+     * @return out
+     */
+    public static Vector2 divide(Vector2 vector, double scalar, Vector2 out) {
+        return out.set(vector).divide(scalar);
+    }
+
     /**
      * Returns a rotated copy of the given vector.
      *
@@ -192,15 +293,49 @@ public final class Vector2 implements Cloneable {
         return vector.clone().rotate(radians);
     }
 
+    /**
+     * Rotates the given vector into out.
+     *
+     * @param vector  The vector to rotate
+     * @param radians Angle to rate
+     * @param out     Vector that receives the result.
+     * @return out
+     */
+    public static Vector2 rotate(Vector2 vector, double radians, Vector2 out) {
+        return out.set(vector).rotate(radians);
+    }
+
+    /**
+     * Rotates the given vector by the angle of a unit direction into out.
+     *
+     * @see #rotate(Vector2)
+     * @return out
+     */
+    public static Vector2 rotate(Vector2 vector, Vector2 direction, Vector2 out) {
+        return out.set(vector).rotate(direction);
+    }
+
+    /**
+     * Rotates the given vector back by the angle of a unit direction into out.
+     *
+     * @see #unrotate(Vector2)
+     * @return out
+     */
+    public static Vector2 unrotate(Vector2 vector, Vector2 direction, Vector2 out) {
+        return out.set(vector).unrotate(direction);
+    }
+
     /**
      * @return The distance between the two vectors
      */
     public static double distanceSqr(Vector2 v1, Vector2 v2) {
-        return subtract(v1, v2).sizeSqr();
+        final var dx = v1.x - v2.x;
+        final var dy = v1.y - v2.y;
+        return dx * dx + dy * dy;
     }
 
     public static double distance(Vector2 v1, Vector2 v2) {
-        return subtract(v1, v2).size();
+        return Math.sqrt(distanceSqr(v1, v2));
     }
 
     /**
@@ -211,10 +346,19 @@ public final class Vector2 implements Cloneable {
      * @return The truncated vector
      */
     public static Vector2 truncate(Vector2 vector, double size) {
-        if (vector.sizeSqr() <= size * size) {
-            return vector.clone();
-        }
-        return normalize(vector).multiply(size);
+        return vector.clone().truncate(size);
+    }
+
+    /**
+     * Truncates the vector to the given size into out.
+     *
+     * @param vector Vector to be truncated
+     * @param size   The maximum vector size
+     * @param out    Vector that receives the result.
+     * @return out
+     */
+    public static Vector2 truncate(Vector2 vector, double size, Vector2 out) {
+        return out.set(vector).truncate(size);
     }
 
     /**
@@ -274,6 +418,16 @@ public final class Vector2 implements Cloneable {
         return this;
     }
 
+    /**
+     * Copies the components of other vector
+     *
+     * @param other The vector to copy
+     * @return This vector.
+     */
+    public Vector2 set(Vector2 other) {
+        return set(other.x, other.y);
+    }
+
     /**
      * @return the size of this vector squared.
      */
@@ -298,6 +452,17 @@ public final class Vector2 implements Cloneable {
         return this.normalize().multiply(newSize);
     }
 
+    /**
+     * Truncates this vector, so its size is not greater than the given size.
+     *
+     * @param size The maximum vector size
+     * @return This vector after truncation.
+     * @see Vector2#truncate(Vector2, double)
+     */
+    public Vector2 truncate(double size) {
+        return sizeSqr() <= size * size ? this : normalize().multiply(size);
+    }
+
     /**
      * @return Turns this vector into a unitary vector.
      * @see Vector2#normalize(Vector2)
@@ -390,8 +555,8 @@ public final class Vector2 implements Cloneable {
      * @return This vector, rotated
      */
     public Vector2 rotate(double radians) {
-        var s = Math.sin(radians);
-        var c = Math.cos(radians);
+        var s = sin(radians);
+        var c = cos(radians);
 
         var newX = x * c - y * s;
         var newY = x * s + y * c;
@@ -401,6 +566,34 @@ public final class Vector2 implements Cloneable {
         return this;
     }
 
+    /**
+     * Rotates the vector by the angle of the given unit direction, which is used directly as the
+     * rotation matrix. E.g. rotating a point of a car's local frame, where x points forward, by
+     * the car direction gives its offset in the world.
+     *
+     * @param direction A unit vector.
+     * @return This vector, rotated
+     */
+    public Vector2 rotate(Vector2 direction) {
+        final var c = direction.x;
+        final var s = direction.y;
+        return set(x * c - y * s, x * s + y * c);
+    }
+
+    /**
+     * Rotates the vector back by the angle of the given unit direction, the inverse of
+     * {@link #rotate(Vector2)}. E.g. unrotating a world offset by the car direction gives it in
+     * the car's local frame.
+     *
+     * @param direction A unit vector.
+     * @return This vector, rotated
+     */
+    public Vector2 unrotate(Vector2 direction) {
+        final var c = direction.x;
+        final var s = direction.y;
+        return set(x * c + y * s, y * c - x * s);
+    }
+
     /**
      * @return True if this is a unitary (normal) vector.
      */
@@ -419,7 +612,7 @@ public final class Vector2 implements Cloneable {
      * @return This Vector angle around
      */
     double getAngle() {
-        return Math.atan2(y, x);
+        return fastMath ? FastMath.atan2(y, x) : Math.atan2(y, x);
     }
 
     @Override
@@ -0,0 +1,73 @@
+package cars.engine;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+import static jdk.incubator.vector.VectorOperators.GT;
+import static jdk.incubator.vector.VectorOperators.LT;
+
+/**
+ * SIMD version of {@link CarStore#integrate(double, double, double)}, on the incubating JDK
+ * Vector API. It needs {@code --add-modules jdk.incubator.vector} to compile and to run, so it
+ * is only reached through {@link Integrator#VECTOR}, once the module is known to be there.
+ * <p>
+ * Every lane does the same IEEE operations as the scalar loop, in the same order and with no
+ * fused multiply-add, so the results are identical. The speed limit and the wrap around are
+ * masked blends instead of branches, and cars that did not steer keep their velocity and
+ * position through the steered mask. Cars after the last full vector go through the scalar loop.
+ */
+final class VectorIntegrator {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private VectorIntegrator() {}
+
+    static void integrate(CarStore store, double secs, double width, double height) {
+        final var n = store.size();
+        final var w = width / 2.0;
+        final var h = height / 2.0;
+        final var limitX = w + Car.WRAP_MARGIN;
+        final var limitY = h + Car.WRAP_MARGIN;
+        final var one = DoubleVector.broadcast(SPECIES, 1.0);
+
+        final var bound = SPECIES.loopBound(n);
+        for (var i = 0; i < bound; i += SPECIES.length()) {
+            final var px = DoubleVector.fromArray(SPECIES, store.px, i);
+            final var py = DoubleVector.fromArray(SPECIES, store.py, i);
+            px.intoArray(store.ppx, i);
+            py.intoArray(store.ppy, i);
+            final var steered = VectorMask.fromArray(SPECIES, store.steered, i);
+            if (!steered.anyTrue()) continue;
+
+            // (F * dt) / m
+            final var vx = DoubleVector.fromArray(SPECIES, store.vx, i);
+            final var vy = DoubleVector.fromArray(SPECIES, store.vy, i);
+            final var inv = one.div(DoubleVector.fromArray(SPECIES, store.mass, i));
+            var x = vx.add(DoubleVector.fromArray(SPECIES, store.fx, i).mul(secs).mul(inv));
+            var y = vy.add(DoubleVector.fromArray(SPECIES, store.fy, i).mul(secs).mul(inv));
+
+            final var max = DoubleVector.fromArray(SPECIES, store.maxSpeed, i);
+            final var sizeSqr = x.mul(x).add(y.mul(y));
+            final var tooFast = sizeSqr.compare(GT, max.mul(max));
+            if (tooFast.anyTrue()) {
+                final var k = one.div(sizeSqr.sqrt());
+                x = x.blend(x.mul(k).mul(max), tooFast);
+                y = y.blend(y.mul(k).mul(max), tooFast);
+            }
+            x = vx.blend(x, steered);
+            y = vy.blend(y, steered);
+            x.intoArray(store.vx, i);
+            y.intoArray(store.vy, i);
+
+            var nx = px.add(x.mul(secs));
+            var ny = py.add(y.mul(secs));
+            nx = nx.blend(w, nx.compare(LT, -limitX));
+            nx = nx.blend(-w, nx.compare(GT, limitX));
+            ny = ny.blend(h, ny.compare(LT, -limitY));
+            ny = ny.blend(-h, ny.compare(GT, limitY));
+            px.blend(nx, steered).intoArray(store.px, i);
+            py.blend(ny, steered).intoArray(store.py, i);
+        }
+        store.integrate(bound, n, secs, width, height);
+    }
+}
@@ -5,18 +5,95 @@ import cars.student.Setup;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
 
+/**
+ * Viewer of a {@link Simulation}.
+ * <p>
+ * The simulation runs in its own thread, paced by the wall clock through a {@link TimeController},
+ * and publishes a snapshot after each batch of ticks. Space pauses, N runs a single tick and + and
+ * - change the speed, from 0.1 to 64 times real time. The render thread draws the newest snapshot,
+ * so slow rendering does not slow the simulation down, and vice versa. Input events are queued by
+ * the event dispatch thread and applied by the simulation thread between batches of ticks.
+ * <p>
+ * Runs can be recorded with {@code -Dcars.record=file}, made repeatable with {@code -Dcars.seed=N},
+ * and played back with {@code -Dcars.replay=file}. While replaying, the left and right arrows
+ * jump 5 seconds back and forth, and the up and down arrows change the playback speed.
+ * <p>
+ * The world size does not depend on the window, it is set with {@code -Dcars.worldWidth=N} and
+ * {@code -Dcars.worldHeight=N}. A {@link Camera} shows part of it: the mouse wheel zooms, dragging
+ * pans, F follows the car under the mouse and C resets the view. Only the cars in view are drawn.
+ */
 public final class Window extends JFrame implements Runnable {
     public static final int INITIAL_WIDTH = 1024;
     public static final int INITIAL_HEIGHT = 768;
 
-    private final List<Car> cars;
-    private Vector2 clickPos = null;
-    private Vector2 mousePos = null;
-    private boolean debugMode = true;
+    // Stats are summarized, then restarted, every half a second
+    private static final long STATS_WINDOW_NANOS = 500_000_000L;
 
-    private Window() {
+    private static final Color BACKGROUND = new Color(220, 220, 220);
+    // Around the world, when zoomed out
+    private static final Color OUTSIDE = new Color(150, 150, 150);
+    private static final double ZOOM_STEP = 1.1;
+    private static final Font HINT_FONT = new Font("Arial", Font.PLAIN, 10);
+
+    // Steering time allowed to each car per tick, off unless set with -Dcars.steeringBudgetMillis=N
+    private static final long STEERING_BUDGET_MILLIS = Long.getLong("cars.steeringBudgetMillis", 0);
+
+    // Replay controls
+    private static final double REPLAY_JUMP_SECS = 5;
+    private static final double MIN_REPLAY_SPEED = 0.125;
+    private static final double MAX_REPLAY_SPEED = 64;
+
+    private final Simulation simulation;    // null while replaying
+    private final Recorder recorder;        // null unless recording
+    private final Replayer replayer;        // null unless replaying
+    private final double dtNanos;
+    private final TimeController time;      // null while replaying
+    private final List<Obstacle> obstacles;
+    private final List<Path> paths;
+    private final SnapshotBuffer snapshots = new SnapshotBuffer();
+    private final Queue<Consumer<Simulation>> inputs = new ConcurrentLinkedQueue<>();
+    private final Queue<Runnable> replayInputs = new ConcurrentLinkedQueue<>();
+
+    // Replay thread only
+    private double replayFrame = 0;
+    private double replaySpeed = 1;
+
+    // Written by the event dispatch thread, read by the render thread
+    private volatile boolean debugMode = true;
+    // Draws the vector car model instead of the cached sprites
+    private volatile boolean highQuality = false;
+    private volatile boolean showStats = false;
+    // Last mouse position on the screen, and a pending F key press
+    private volatile int mouseX;
+    private volatile int mouseY;
+    private volatile boolean followRequested = false;
+
+    // Moved by the event dispatch thread, tracks the followed car in the render thread
+    private final Camera camera = new Camera();
+    private int dragX;
+    private int dragY;
+
+    // Render thread only
+    private final CarRenderer renderer = new CarRenderer();
+    private final SceneryLayer scenery = new SceneryLayer();
+    private final Rectangle2D.Double view = new Rectangle2D.Double();
+    private final Rectangle2D.Double bounds = new Rectangle2D.Double();   // scratch
+    private final Vector2 point = new Vector2();      // scratch
+    private final Stats renderStats = new Stats();
+    private String renderSummary = "";
+    private final RenderQuality quality = new RenderQuality(
+        (long) (Simulation.DEFAULT_DT * 1e9), RenderQuality.LOW_DETAIL_CARS, RenderQuality.LOW_DETAIL_PIXELS
+    );
+
+    private Window() throws IOException {
         super("Steering behaviors");
         setSize(INITIAL_WIDTH, INITIAL_HEIGHT);
         setLocationRelativeTo(null);
@@ -34,63 +111,313 @@ public final class Window extends JFrame implements Runnable {
         addMouseListener(new MouseAdapter() {
             @Override
             public void mouseClicked(MouseEvent e) {
-                // click position relative to the centered origin
-                clickPos = new Vector2(
-                    e.getX() - getWidth() / 2.0,
-                    e.getY() - getHeight() / 2.0
-                );
+                final var clickPos = camera.toWorld(e.getX(), e.getY(), getWidth(), getHeight(), new Vector2());
+                input(simulation -> simulation.setClickPos(clickPos));
+            }
+
+            @Override
+            public void mousePressed(MouseEvent e) {
+                dragX = e.getX();
+                dragY = e.getY();
             }
         });
 
         addMouseMotionListener(new MouseAdapter() {
             @Override
             public void mouseMoved(MouseEvent e) {
-                mousePos = new Vector2(
-                    e.getX() - getWidth() / 2.0,
-                    e.getY() - getHeight() / 2.0
-                );
+                mouseX = e.getX();
+                mouseY = e.getY();
+                final var mousePos = camera.toWorld(e.getX(), e.getY(), getWidth(), getHeight(), new Vector2());
+                input(simulation -> simulation.setMousePos(mousePos));
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (!SwingUtilities.isLeftMouseButton(e)) return;
+                camera.pan(e.getX() - dragX, e.getY() - dragY);
+                dragX = e.getX();
+                dragY = e.getY();
             }
         });
 
+        addMouseWheelListener(e -> camera.zoomAt(
+            e.getX(), e.getY(), getWidth(), getHeight(), Math.pow(ZOOM_STEP, -e.getPreciseWheelRotation())
+        ));
+
         addKeyListener(new KeyAdapter() {
             @Override
             public void keyTyped(KeyEvent e) {
                 if ("D".equalsIgnoreCase("" + e.getKeyChar())) {
                     debugMode = !debugMode;
+                } else if ("Q".equalsIgnoreCase("" + e.getKeyChar())) {
+                    highQuality = !highQuality;
+                } else if ("S".equalsIgnoreCase("" + e.getKeyChar())) {
+                    showStats = !showStats;
+                } else if ("F".equalsIgnoreCase("" + e.getKeyChar())) {
+                    // Resolved by the render thread, which has the car positions
+                    if (camera.getFollowing() == -1) followRequested = true;
+                    else camera.follow(-1);
+                } else if ("C".equalsIgnoreCase("" + e.getKeyChar())) {
+                    camera.reset();
+                } else if (time != null) {
+                    switch (Character.toUpperCase(e.getKeyChar())) {
+                        case ' ' -> time.togglePause();
+                        case 'N' -> time.step();
+                        case '+', '=' -> time.faster();
+                        case '-', '_' -> time.slower();
+                    }
+                }
+            }
+
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (replayer == null) return;
+                switch (e.getKeyCode()) {
+                    case KeyEvent.VK_LEFT -> replayInputs.add(() -> replayFrame -= REPLAY_JUMP_SECS / replayer.getDt());
+                    case KeyEvent.VK_RIGHT -> replayInputs.add(() -> replayFrame += REPLAY_JUMP_SECS / replayer.getDt());
+                    case KeyEvent.VK_UP -> replayInputs.add(() -> replaySpeed = Math.min(replaySpeed * 2, MAX_REPLAY_SPEED));
+                    case KeyEvent.VK_DOWN -> replayInputs.add(() -> replaySpeed = Math.max(replaySpeed / 2, MIN_REPLAY_SPEED));
                 }
             }
         });
         requestFocus();
-        this.cars = new Setup().createCars();
+
+        final var replay = System.getProperty("cars.replay");
+        if (replay != null) {
+            this.simulation = null;
+            this.recorder = null;
+            this.replayer = new Replayer(java.nio.file.Path.of(replay));
+            if (replayer.getFrameCount() == 0) {
+                throw new IOException("empty recording: " + replay);
+            }
+            this.dtNanos = replayer.getDt() * 1e9;
+            this.time = null;
+            // Obstacles and paths are not recorded
+            this.obstacles = List.of();
+            this.paths = List.of();
+            return;
+        }
+
+        final var seed = Long.getLong("cars.seed");
+        if (seed != null) Settings.setSeed(seed);
+        final var setup = new Setup();
+        this.simulation = new Simulation(setup.createCars());
+        this.simulation.setObstacles(setup.createObstacles());
+        this.simulation.setPaths(setup.createPaths());
+        this.simulation.setCollisionsEnabled(Boolean.getBoolean("cars.collisions"));
+        this.simulation.setSleepEnabled(Boolean.getBoolean("cars.sleep"));
+        this.obstacles = simulation.getObstacles();
+        this.paths = simulation.getPaths();
+        this.simulation.setMeasured(true);
+        this.simulation.setSteeringBudget(STEERING_BUDGET_MILLIS * 1_000_000);
+        this.dtNanos = simulation.getDt() * 1e9;
+        this.time = new TimeController(dtNanos);
+        final var speed = System.getProperty("cars.speed");
+        try {
+            if (speed != null) time.setSpeed(Double.parseDouble(speed));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("cars.speed must be a number: " + speed);
+        }
+        this.replayer = null;
+
+        final var record = System.getProperty("cars.record");
+        this.recorder = record == null ? null : new Recorder(java.nio.file.Path.of(record), simulation);
+        if (recorder != null) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    recorder.close();
+                } catch (IOException e) {
+                    System.err.println("Could not close the recording: " + e.getMessage());
+                }
+            }));
+        }
     }
 
     public static void main(String[] args) {
-        EventQueue.invokeLater(() -> new Window().setVisible(true));
+        EventQueue.invokeLater(() -> {
+            try {
+                new Window().setVisible(true);
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+                System.exit(1);
+            }
+        });
     }
 
     private void start() {
         createBufferStrategy(3);
-        final var gameLoop = new Thread(this, "game-loop");
-        gameLoop.setDaemon(true);
-        gameLoop.start();
+
+        final Thread simulationLoop;
+        if (replayer != null) {
+            snapshots.publish(replayer, null);
+            simulationLoop = new Thread(this::replay, "replay");
+        } else {
+            snapshots.publish(simulation, null);
+            simulationLoop = new Thread(this::simulate, "simulation");
+        }
+        simulationLoop.setDaemon(true);
+        simulationLoop.start();
+
+        final var renderLoop = new Thread(this, "render");
+        renderLoop.setDaemon(true);
+        renderLoop.start();
+    }
+
+    /**
+     * Simulation thread: fixed steps, as many as the time controller asks for.
+     */
+    private void simulate() {
+        var recording = recorder != null;
+        var statsStart = System.nanoTime();
+        time.start(statsStart);
+        String stats = null;
+        while (true) {
+            final var changed = applyInputs();
+            final var now = System.nanoTime();
+            final var ticks = time.advance(now);
+            for (var i = 0; i < ticks; i++) {
+                simulation.step();
+                if (recording) recording = record();
+            }
+            if (ticks > 0) time.stepped(ticks, System.nanoTime() - now);
+
+            if (now - statsStart >= STATS_WINDOW_NANOS) {
+                time.sample(now);
+                stats = summarize(simulation.getStats());
+                simulation.getStats().reset();
+                statsStart = now;
+            }
+            // While paused, inputs are published on their own, so a click shows up
+            if (ticks > 0 || changed && time.isPaused()) snapshots.publish(simulation, stats);
+
+            LockSupport.parkNanos(time.nanosToNextTick());
+        }
+    }
+
+    private boolean record() {
+        try {
+            recorder.record();
+            return true;
+        } catch (IOException e) {
+            System.err.println("Recording stopped: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Replay thread: plays the recording back at the chosen speed.
+     */
+    private void replay() {
+        var last = System.nanoTime();
+        while (true) {
+            final var now = System.nanoTime();
+            replayFrame += (now - last) / dtNanos * replaySpeed;
+            last = now;
+            for (var input = replayInputs.poll(); input != null; input = replayInputs.poll()) {
+                input.run();
+            }
+            replayFrame = Math.clamp(replayFrame, 0, replayer.getFrameCount() - 1);
+
+            final var frame = (long) replayFrame;
+            if (frame != replayer.getFrame()) {
+                replayer.seek(frame);
+                snapshots.publish(replayer, "replay: frame %d of %d (tick %d) at %sx | arrows: left/right jump, up/down speed".formatted(
+                    frame + 1, replayer.getFrameCount(), replayer.getTick(), replaySpeed
+                ));
+            }
+            LockSupport.parkNanos((long) Math.min(dtNanos, dtNanos / replaySpeed));
+        }
+    }
+
+    private static String summarize(Stats stats) {
+        final var tick = stats.get(Stats.TICK);
+        final var slowest = stats.getSlowestCarClass();
+        return "tick p50 %s p99 %s | steering p99 %s | neighbors p99 %s | slowest car: %s | %d B/tick".formatted(
+            millis(tick.getValueAtPercentile(50)),
+            millis(tick.getValueAtPercentile(99)),
+            millis(stats.get(Stats.STEERING).getValueAtPercentile(99)),
+            millis(stats.get(Stats.NEIGHBORS).getValueAtPercentile(99)),
+            slowest == null ? "-" : "%s (%s)".formatted(
+                slowest.getSimpleName(), millis((long) stats.getSteeringByClass().get(slowest).getMean())
+            ),
+            (long) stats.get(Stats.ALLOCATED_BYTES).getMean()
+        ) + summarizeCollisions(stats) + summarizeSleeping(stats) + summarizeOverruns(stats);
     }
 
+    private static String summarizeSleeping(Stats stats) {
+        final var sleeping = stats.get(Stats.SLEEPING);
+        if (sleeping.getCount() == 0) return "";
+        return " | asleep %.0f".formatted(sleeping.getMean());
+    }
+
+    private static String summarizeCollisions(Stats stats) {
+        final var collisions = stats.get(Stats.COLLISIONS);
+        if (collisions.getCount() == 0) return "";
+        return " | collisions %.1f/tick, p99 %s".formatted(
+            collisions.getMean(), millis(stats.get(Stats.COLLISION).getValueAtPercentile(99))
+        );
+    }
+
+    private static String summarizeOverruns(Stats stats) {
+        final var overruns = stats.getOverrunsByClass();
+        if (overruns.isEmpty()) return "";
+        final var text = new StringBuilder(" | over budget:");
+        overruns.forEach((carClass, count) -> text.append(' ').append(carClass.getSimpleName()).append(" x").append(count));
+        return text.toString();
+    }
+
+    private static String millis(long nanos) {
+        return "%.3fms".formatted(nanos / 1e6);
+    }
+
+    private void input(Consumer<Simulation> input) {
+        // Nothing consumes inputs while replaying
+        if (simulation != null) inputs.add(input);
+    }
+
+    /**
+     * @return True if there was any input.
+     */
+    private boolean applyInputs() {
+        var any = false;
+        for (var input = inputs.poll(); input != null; input = inputs.poll()) {
+            input.accept(simulation);
+            any = true;
+        }
+        return any;
+    }
+
+    /**
+     * Render thread: draws the newest snapshot, interpolated up to the next tick.
+     */
     @Override
     public void run() {
-        double prev = System.currentTimeMillis() - 1;
+        var statsStart = System.nanoTime();
         try {
             final var strategy = getBufferStrategy();
             while (true) {
-                final double now = System.currentTimeMillis();
-                final var g2d = (Graphics2D) strategy.getDrawGraphics();
-
-                draw(g2d);
-                update((now - prev) / 1000.0);
+                final var frameStart = System.nanoTime();
+                final var snapshot = snapshots.latest();
+                // Ticks come dt / speed apart, and not at all while paused
+                final var tickNanos = time == null ? dtNanos : time.getTickWallNanos();
+                final var alpha = tickNanos == 0 ? 1.0 : Math.clamp((frameStart - snapshot.publishedNanos) / tickNanos, 0.0, 1.0);
 
+                final var g2d = (Graphics2D) strategy.getDrawGraphics();
+                draw(g2d, snapshot, alpha);
                 g2d.dispose();
+                final var drawEnd = System.nanoTime();
                 Toolkit.getDefaultToolkit().sync(); // helps on some systems
-                prev = now;
                 strategy.show();
+                final var frameEnd = System.nanoTime();
+
+                quality.frame(frameEnd - frameStart);
+                renderStats.get("draw").record(drawEnd - frameStart);
+                renderStats.get("show").record(frameEnd - drawEnd);
+                if (frameEnd - statsStart >= STATS_WINDOW_NANOS) {
+                    renderSummary = summarizeRender(renderStats, frameEnd - statsStart);
+                    renderStats.reset();
+                    statsStart = frameEnd;
+                }
 
                 Thread.sleep(1);
             }
@@ -100,46 +427,132 @@ public final class Window extends JFrame implements Runnable {
         System.exit(0);
     }
 
-    private void update(final double secs) {
-        cars.forEach(car -> car.update(
-            new World(
-                    secs, car, cars,
-                    mousePos, clickPos,
-                    getWidth(), getHeight()
-                )
-            )
+    private static String summarizeRender(Stats stats, long elapsedNanos) {
+        final var draw = stats.get("draw");
+        return "FPS %.0f | draw p50 %s p99 %s | show p99 %s".formatted(
+            draw.getCount() * 1e9 / elapsedNanos,
+            millis(draw.getValueAtPercentile(50)),
+            millis(draw.getValueAtPercentile(99)),
+            millis(stats.get("show").getValueAtPercentile(99))
         );
     }
 
-    private void draw(Graphics2D g2d) {
-        // Quality hints
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
-        g2d.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_QUALITY);
-        g2d.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
-        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+    private void draw(Graphics2D g2d, Snapshot snapshot, double alpha) {
+        // Quality hints, lowered while frames take too long
+        quality.apply(g2d);
+        final var screen = g2d.getTransform();
+        final var width = getWidth();
+        final var height = getHeight();
 
         // Clear
-        g2d.setBackground(new Color(220, 220, 220));
-        g2d.clearRect(0, 0, getWidth(), getHeight());
+        g2d.setBackground(OUTSIDE);
+        g2d.clearRect(0, 0, width, height);
+
+        // Move the camera to where the followed car is drawn, then into world coordinates
+        if (followRequested) {
+            followRequested = false;
+            camera.follow(nearestCar(snapshot, camera.toWorld(mouseX, mouseY, width, height, point)));
+        }
+        final var following = camera.getFollowing();
+        if (following >= snapshot.count) {
+            camera.follow(-1);
+        } else if (following != -1) {
+            final var position = snapshot.interpolate(following, alpha, point);
+            camera.track(position.x, position.y);
+        }
+        camera.apply(g2d, width, height, view);
 
-        // Center the world origin
-        g2d.translate(getWidth() / 2.0, getHeight() / 2.0);
+        g2d.setColor(BACKGROUND);
+        bounds.setRect(-snapshot.width / 2, -snapshot.height / 2, snapshot.width, snapshot.height);
+        g2d.fill(bounds);
 
-        // Click marker (relative to center)
-        if (clickPos != null) {
+        // Click marker
+        if (snapshot.hasClickPos) {
             g2d.setColor(Color.GRAY);
-            g2d.fillOval((int) clickPos.x - 4, (int) clickPos.y - 4, 8, 8);
+            g2d.fillOval((int) snapshot.clickX - 4, (int) snapshot.clickY - 4, 8, 8);
         }
 
-        // Draw cars
-        cars.forEach(car -> car.draw(g2d, debugMode));
+        final var debug = debugMode;
+        scenery.draw(g2d, obstacles, paths, debug, width, height);
+
+        // Draw the cars in view
+        final var vector = highQuality;
+        final var visible = renderer.cull(snapshot, view, debug);
+        final var lowDetail = quality.isLowDetail(visible, screenScale(g2d));
+        renderer.draw(g2d, snapshot, alpha, debug, vector, lowDetail);
 
-        g2d.setFont(new Font("Arial", Font.PLAIN, 10));
+        // Hints, in screen coordinates
+        g2d.setTransform(screen);
+        g2d.setFont(HINT_FONT);
         g2d.setColor(Color.DARK_GRAY);
+        if (time != null) {
+            final var achieved = time.getAchievedSpeed();
+            // The simulation can't keep up, and time is being dropped
+            final var behind = !time.isPaused() && achieved < time.getSpeed() * 0.95;
+            g2d.drawString(
+                "Space %s, N steps, +/- speed: %s (achieved %.2fx%s)".formatted(
+                    time.isPaused() ? "resumes" : "pauses", speed(time.getSpeed()), achieved,
+                    behind ? ", dropping time" : ""
+                ),
+                20.0f, height - 20.0f
+            );
+        }
+        g2d.drawString(
+            "Press D to turn debug arrows %s".formatted(debug ? "off" : "on"),
+            20.0f, height - 32.0f
+        );
         g2d.drawString(
-            "Press D to turn debug arrows %s".formatted(debugMode ? "off" : "on"),
-            20.0f - getWidth() / 2.0f, getHeight() / 2.0f - 20.0f
+            "Press Q to turn high quality cars %s (render quality: %s)".formatted(
+                vector ? "off" : "on", quality.getLevel()
+            ),
+            20.0f, height - 44.0f
         );
+        g2d.drawString(
+            "Press S to %s stats".formatted(showStats ? "hide" : "show"),
+            20.0f, height - 56.0f
+        );
+        g2d.drawString(
+            "Wheel zooms (%.2fx), drag pans, F %s, C resets the view | %d of %d cars in view".formatted(
+                camera.getZoom(), following == -1 ? "follows the car under the mouse" : "stops following",
+                visible, snapshot.count
+            ),
+            20.0f, height - 68.0f
+        );
+        if (showStats) {
+            g2d.drawString(renderSummary, 20.0f, height - 92.0f);
+        }
+        // Replays always show where they are
+        if (snapshot.stats != null && (showStats || replayer != null)) {
+            g2d.drawString(snapshot.stats, 20.0f, height - 80.0f);
+        }
+    }
+
+    // 4x, 0.25x
+    private static String speed(double speed) {
+        return (speed == Math.rint(speed) ? Long.toString((long) speed) : Double.toString(speed)) + "x";
+    }
+
+    /**
+     * @return The car closest to the position, or -1 if there are no cars.
+     */
+    private static int nearestCar(Snapshot snapshot, Vector2 position) {
+        var best = -1;
+        var bestDistanceSqr = Double.POSITIVE_INFINITY;
+        for (var i = 0; i < snapshot.count; i++) {
+            final var dx = snapshot.px[i] - position.x;
+            final var dy = snapshot.py[i] - position.y;
+            final var distanceSqr = dx * dx + dy * dy;
+            if (distanceSqr < bestDistanceSqr) {
+                best = i;
+                bestDistanceSqr = distanceSqr;
+            }
+        }
+        return best;
+    }
+
+    // Pixels per world unit, including any device scale (e.g. HiDPI)
+    private static double screenScale(Graphics2D g2d) {
+        final var t = g2d.getTransform();
+        return Math.hypot(t.getScaleX(), t.getShearY());
     }
 }
@@ -1,18 +1,37 @@
 package cars.engine;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 
-import static cars.engine.Car.distance;
+import static cars.engine.Car.distanceSqr;
 
 public final class World {
+    private static final ObstacleTree EMPTY_OBSTACLES = new ObstacleTree(List.of());
+
     private final Car current;
     private final List<Car> cars;
-    private final Vector2 mousePos;   // absolute scene coords; may be null
-    private final Vector2 clickPos;   // center-relative coords; may be null
-    private final double secs;
+    private final SpatialGrid grid;   // may be null, falls back to a full scan
+    private ObstacleTree obstacles = EMPTY_OBSTACLES;
+    private List<Path> paths = List.of();
+    private Collisions collisions;   // may be null
+    // Engine worlds are reused from tick to tick, see update()
+    private Vector2 mousePos;   // absolute scene coords; may be null
+    private Vector2 clickPos;   // center-relative coords; may be null
+    private double secs;
+
+    private double width;
+    private double height;
 
-    private final double width;
-    private final double height;
+    // Cached for the tick, see getNeighborhood()
+    private final Neighborhood neighborhood = new Neighborhood();
+
+    // Instrumentation of the last tick, see Simulation.setMeasured()
+    private boolean measured = false;
+    long steeringNanos;
+    long steeringBytes;
+    long neighborNanos;
 
     public World(double secs,
                  Car current,
@@ -21,8 +40,54 @@ public final class World {
                  Vector2 clickPos,
                  double width,
                  double height) {
+        this(secs, current, cars, null, mousePos, clickPos, width, height);
+    }
+
+    World(double secs,
+          Car current,
+          List<Car> cars,
+          SpatialGrid grid,
+          Vector2 mousePos,
+          Vector2 clickPos,
+          double width,
+          double height) {
         this.current = current;
         this.cars = cars;
+        this.grid = grid;
+        update(secs, mousePos, clickPos, width, height, false);
+    }
+
+    /**
+     * Computes and applies the steering force of the current car, measuring it if requested.
+     */
+    void steer() {
+        current.setSteering(calculateSteering());
+    }
+
+    /**
+     * Computes the steering force of the current car without applying it, measuring it if requested.
+     */
+    Vector2 calculateSteering() {
+        if (!measured) {
+            return current.calculateSteering(this);
+        }
+        final var bytes = Stats.allocatedBytes();
+        final var start = System.nanoTime();
+        final var steering = current.calculateSteering(this);
+        steeringNanos = System.nanoTime() - start;
+        steeringBytes = Stats.allocatedBytes() - bytes;
+        return steering;
+    }
+
+    /**
+     * Prepares this world for a new tick, so the engine does not create worlds every tick.
+     */
+    void update(double secs, Vector2 mousePos, Vector2 clickPos, double width, double height, boolean measured) {
+        this.measured = measured;
+        this.steeringNanos = 0;
+        this.steeringBytes = 0;
+        this.neighborNanos = 0;
+        this.neighborhood.invalidate();
         this.mousePos = mousePos;
         this.clickPos = clickPos;
         this.secs = secs;
@@ -38,19 +103,230 @@ public final class World {
         return clickPos == null ? null : clickPos.clone();
     }
 
+    /**
+     * Copies the mouse position into out.
+     *
+     * @return out, or null if there is no mouse position.
+     */
+    public Vector2 getMousePos(Vector2 out) {
+        return mousePos == null ? null : out.set(mousePos);
+    }
+
+    /**
+     * Copies the last click position into out.
+     *
+     * @return out, or null if no click was given yet.
+     */
+    public Vector2 getClickPos(Vector2 out) {
+        return clickPos == null ? null : out.set(clickPos);
+    }
+
     public List<Car> getNeighbors() {
-        return this.cars.stream()
-            .filter(c -> c != current)
-            .toList();
+        final var start = measured ? System.nanoTime() : 0;
+        final var neighbors = new ArrayList<Car>(Math.max(cars.size() - 1, 0));
+        for (final var car : cars) {
+            if (car != current) neighbors.add(car);
+        }
+        if (measured) neighborNanos += System.nanoTime() - start;
+        return Collections.unmodifiableList(neighbors);
     }
 
     public List<Car> getNeighbors(int radius) {
-        return this.cars.stream()
-            .filter(c -> c != current)
-            .filter(c -> distance(current, c) <= radius)
-            .toList();
+        return getNeighbors((double) radius);
+    }
+
+    public List<Car> getNeighbors(double radius) {
+        final var start = measured ? System.nanoTime() : 0;
+        final List<Car> neighbors;
+        if (grid != null) {
+            neighbors = grid.neighbors(current, radius);
+        } else {
+            final var found = new ArrayList<Car>();
+            final var radiusSqr = radius < 0 ? -1 : radius * radius;
+            for (final var car : cars) {
+                if (car != current && distanceSqr(current, car) <= radiusSqr) found.add(car);
+            }
+            neighbors = Collections.unmodifiableList(found);
+        }
+        if (measured) neighborNanos += System.nanoTime() - start;
+        return neighbors;
+    }
+
+    /**
+     * Calls action for each car, other than the current one, within radius, without building
+     * a list. Cars are visited in no particular order.
+     */
+    public void forEachNeighbor(double radius, NeighborConsumer action) {
+        Objects.requireNonNull(action);
+        visitNeighbors(radius, action);
+    }
+
+    /**
+     * @return The number of cars, other than the current one, within radius.
+     */
+    public int countNeighbors(double radius) {
+        return visitNeighbors(radius, null);
+    }
+
+    private int visitNeighbors(double radius, NeighborConsumer action) {
+        final var start = measured ? System.nanoTime() : 0;
+        var count = 0;
+        if (grid != null) {
+            count = grid.forEach(current, radius, action);
+        } else {
+            final var radiusSqr = radius < 0 ? -1 : radius * radius;
+            for (final var car : cars) {
+                if (car == current) continue;
+                final var distSqr = distanceSqr(current, car);
+                if (distSqr > radiusSqr) continue;
+                if (action != null) action.accept(car, distSqr);
+                count++;
+            }
+        }
+        if (measured) neighborNanos += System.nanoTime() - start;
+        return count;
+    }
+
+    /**
+     * Summarizes the cars within radius in a single pass: count, centroid, average velocity,
+     * separation and nearest neighbor.
+     * <p>
+     * The summary is computed once per tick: asking again for the same radius returns it from
+     * a cache. The returned object is reused by this world and is only valid during this tick.
+     */
+    public Neighborhood getNeighborhood(double radius) {
+        if (!neighborhood.isFor(radius)) {
+            neighborhood.begin(current, radius);
+            visitNeighbors(radius, neighborhood.accumulator);
+        }
+        return neighborhood;
+    }
+
+    /**
+     * Finds the k cars nearest to the current one, nearest first.
+     * <p>
+     * The returned list is a read-only scratch buffer of the calling thread: it is only valid
+     * until the next call to this method, and must be copied to be kept.
+     *
+     * @param k         Maximum number of cars to return.
+     * @param maxRadius Cars farther than this are ignored.
+     */
+    public List<Car> nearest(int k, double maxRadius) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative");
+        }
+        final var start = measured ? System.nanoTime() : 0;
+        final var nearest = NeighborScratch.get().nearest;
+        nearest.reset(k, maxRadius);
+        if (grid != null) {
+            grid.nearest(current, nearest);
+        } else {
+            for (var i = 0; i < cars.size(); i++) {
+                final var car = cars.get(i);
+                if (car != current) nearest.offer(car, i, distanceSqr(current, car));
+            }
+        }
+        if (measured) neighborNanos += System.nanoTime() - start;
+        return nearest;
+    }
+
+    /**
+     * @return The car nearest to the current one, or null if it is alone.
+     */
+    public Car nearest() {
+        final var nearest = nearest(1, Double.POSITIVE_INFINITY);
+        return nearest.isEmpty() ? null : nearest.getFirst();
+    }
+
+    public List<Obstacle> getObstacles() { return obstacles.getObstacles(); }
+
+    /**
+     * Casts a ray against the obstacles.
+     *
+     * @param direction   Direction of the ray, of any size but zero.
+     * @param maxDistance Obstacles farther than this along the ray are ignored.
+     * @return The first hit, or null if the ray hits nothing within maxDistance.
+     */
+    public RayHit raycast(Vector2 origin, Vector2 direction, double maxDistance) {
+        final var hit = new RayHit();
+        return raycast(origin, direction, maxDistance, hit);
+    }
+
+    /**
+     * Casts a ray against the obstacles, storing the first hit in out.
+     *
+     * @return out, or null if the ray hits nothing within maxDistance.
+     */
+    public RayHit raycast(Vector2 origin, Vector2 direction, double maxDistance, RayHit out) {
+        final var length = direction.size();
+        if (length == 0) {
+            throw new IllegalArgumentException("direction must not be zero");
+        }
+        final var found = obstacles.raycast(origin.x, origin.y, direction.x / length, direction.y / length, maxDistance, out);
+        return found == -1 ? null : out;
+    }
+
+    /**
+     * @return True if any obstacle is within radius of center, i.e. if a circle there would touch one.
+     */
+    public boolean overlaps(Vector2 center, double radius) {
+        return obstacles.overlaps(center.x, center.y, radius);
+    }
+
+    /**
+     * @return The obstacle nearest to position, or null if there is none within radius.
+     */
+    public Obstacle nearestObstacle(Vector2 position, double radius) {
+        final var found = obstacles.nearest(position.x, position.y, radius);
+        return found == -1 ? null : obstacles.getObstacles().get(found);
+    }
+
+    /**
+     * Finds the obstacle nearest to position, and its point closest to position.
+     *
+     * @param closest Receives the point of the obstacle closest to position, if there is one.
+     * @return The obstacle, or null if there is none within radius.
+     */
+    public Obstacle nearestObstacle(Vector2 position, double radius, Vector2 closest) {
+        final var obstacle = nearestObstacle(position, radius);
+        if (obstacle != null) obstacle.closestPoint(position, closest);
+        return obstacle;
+    }
+
+    void setObstacles(ObstacleTree obstacles) {
+        this.obstacles = obstacles;
     }
 
+    /**
+     * @return The paths of the setup, for path following. Keep a {@link PathCursor} per car to
+     * find where it is along a path quickly.
+     */
+    public List<Path> getPaths() { return paths; }
+
+    void setPaths(List<Path> paths) {
+        this.paths = paths;
+    }
+
+    void setCollisions(Collisions collisions) {
+        this.collisions = collisions;
+    }
+
+    /**
+     * @return The number of pairs of cars that touched in the last tick, 0 when collisions are off.
+     */
+    public int getCollisions() {
+        return collisions == null ? 0 : collisions.getCollisions();
+    }
+
+    /**
+     * @return How many cars the current car touched in the last tick, 0 when collisions are off.
+     */
+    public int getContacts() {
+        return collisions == null ? 0 : collisions.getContacts(current.getIndex());
+    }
+
+    Car getCurrent() { return current; }
+
     public double getSecs() {
         return secs;
     }
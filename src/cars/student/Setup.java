@@ -1,6 +1,8 @@
 package cars.student;
 
 import cars.engine.Car;
+import cars.engine.Obstacle;
+import cars.engine.Path;
 
 import java.util.List;
 
@@ -11,4 +13,21 @@ public class Setup {
     public List<Car> createCars() {
         return List.of(new StudentCar());
     }
+
+    /**
+     * Retorne uma lista com os obstáculos do exercício: círculos, paredes (segmentos) e polígonos,
+     * criados com Obstacle.circle(), Obstacle.segment() e Obstacle.polygon(). Por padrão, não há
+     * obstáculos.
+     */
+    public List<Obstacle> createObstacles() {
+        return List.of();
+    }
+
+    /**
+     * Retorne uma lista com os caminhos que os carros podem seguir, criados com Path.open() ou
+     * Path.looped(). Os carros os obtêm com world.getPaths(). Por padrão, não há caminhos.
+     */
+    public List<Path> createPaths() {
+        return List.of();
+    }
 }
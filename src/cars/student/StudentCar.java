@@ -26,9 +26,31 @@ public class StudentCar extends Car {
      * - world.getNeighbors(): Retorna os carros vizinhos. Não inclui o próprio carro.
      * Opcionalmente, você pode passar o raio da vizinhança. Se o raio não for
      * fornecido retornará os demais carros.
+     * - world.forEachNeighbor(raio, (carro, distanciaAoQuadrado) -> ...): Visita os vizinhos
+     * dentro do raio sem criar uma lista.
+     * - world.countNeighbors(raio): Retorna quantos vizinhos há dentro do raio.
+     * - world.nearest(k, raio): Retorna os k vizinhos mais próximos, do mais perto ao mais longe.
+     * A lista é reaproveitada e só vale até a próxima chamada. world.nearest() retorna o mais próximo.
+     * - world.getNeighborhood(raio): Resume os vizinhos dentro do raio numa única passada: quantidade,
+     * centróide (coesão), velocidade média (alinhamento), separação e vizinho mais próximo.
+     * Calculado uma vez por quadro.
+     * - world.raycast(origem, direcao, distanciaMaxima): Retorna o primeiro obstáculo atingido pelo raio,
+     * com o ponto, a distância e a normal da superfície, ou nulo se nenhum for atingido.
+     * - world.overlaps(centro, raio): Indica se algum obstáculo toca o círculo.
+     * - world.nearestObstacle(posicao, raio): Retorna o obstáculo mais próximo dentro do raio, ou nulo.
+     * - world.getPaths(): Retorna os caminhos do exercício. Guarde um path.cursor() no carro e chame
+     * cursor.update(getPosition()) a cada quadro: cursor.ahead(distancia, vec2()) dá o ponto do caminho
+     * à frente do carro.
+     * - world.getContacts(): Indica em quantos carros este carro bateu no último quadro. Só há batidas
+     * com -Dcars.collisions=true; sem isso, os carros se atravessam e o valor é sempre 0.
+     * Com -Dcars.sleep=true, um carro quase parado e sem força por meio segundo dorme: este método deixa
+     * de ser chamado até que um carro se aproxime, ele sofra uma batida ou o mouse ou o clique mudem
+     * perto dele.
      * - world.getSecs(): Indica quantos segundos transcorreram desde o último quadro
      * Você ainda poderá chamar os seguintes metodos do carro para obter informações:
      * - getDirection(): Retorna um vetor unitário com a direção do veículo
+     * - toWorld(local, vec2()) e toLocal(ponto, vec2()): Convertem pontos entre o mundo e o referencial
+     * do carro, onde x aponta para frente e y para o lado, sem usar ângulos
      * - getPosition(): Retorna um vetor com a posição do carro
      * - getMass(): Retorna a massa do carro
      * - getMaxSpeed(): Retorna a velocidade de deslocamento maxima do carro em píxeis / s